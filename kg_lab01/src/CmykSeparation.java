@@ -0,0 +1,185 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+// Цветоделение всего изображения: четыре формы C, M, Y, K и цветопроба — RGB, полученный
+// обратно из округлённых CMYK теми же формулами, что и в окне Main (ColorConversions).
+//
+// Изображение обрабатывается полосами по stripRows строк: на полосу приходятся один
+// упакованный int[] и четыре плоских byte[], преобразования внутри полосы идут параллельно
+// кусками (ColorConversions). Формы записываются либо
+//   - сырыми файлами <имя>_C.raw … <имя>_K.raw: width * height байт построчно, значение —
+//     процент краски 0..100; полосы пишутся позиционной записью FileChannel, так что
+//     формы не занимают кучу;
+//   - либо 8-битными серыми PNG <имя>_C.png …: 255 — чистая бумага, 0 — 100% краски.
+// Цветопроба сохраняется как <имя>_proof.png.
+//
+// Запуск: java CmykSeparation <изображение> <выходной каталог> [--raw] [--strip N]
+public class CmykSeparation {
+
+    private static final String[] PLATES = {"C", "M", "Y", "K"};
+
+    // Процент краски -> серый уровень формы
+    private static final byte[] PERCENT_TO_GRAY = new byte[101];
+
+    static {
+        for (int p = 0; p <= 100; p++) {
+            PERCENT_TO_GRAY[p] = (byte) (255 - Math.round(p * 255 / 100.0f));
+        }
+    }
+
+    private final int stripRows;
+
+    public CmykSeparation(int stripRows) {
+        if (stripRows < 1) {
+            throw new IllegalArgumentException("Высота полосы должна быть положительной: " + stripRows);
+        }
+        this.stripRows = stripRows;
+    }
+
+    // Формы — сырыми файлами; возвращает цветопробу. Каждая полоса пишется в своё место файла
+    // через FileChannel.write: отображение в память на полосу создавало бы по четыре отображения,
+    // которые освобождаются только сборщиком мусора, и при узких полосах упиралось бы в лимит ОС
+    public BufferedImage separateToRaw(BufferedImage image, File directory, String baseName) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long plateBytes = (long) width * height;
+        BufferedImage proof = RasterAccess.createRGBImage(width, height);
+
+        RandomAccessFile[] files = new RandomAccessFile[4];
+        try {
+            for (int p = 0; p < 4; p++) {
+                File file = new File(directory, baseName + "_" + PLATES[p] + ".raw");
+                files[p] = new RandomAccessFile(file, "rw");
+                files[p].setLength(plateBytes);
+            }
+
+            process(image, proof, (planes, firstRow, rows) -> {
+                long offset = (long) firstRow * width;
+                int length = rows * width;
+                for (int p = 0; p < 4; p++) {
+                    FileChannel channel = files[p].getChannel();
+                    ByteBuffer buffer = ByteBuffer.wrap(planes[p], 0, length);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, offset + buffer.position());
+                    }
+                }
+            });
+        } finally {
+            for (RandomAccessFile file : files) {
+                if (file != null) file.close();
+            }
+        }
+
+        ImageIO.write(proof, "png", new File(directory, baseName + "_proof.png"));
+        return proof;
+    }
+
+    // Формы — серыми PNG; возвращает цветопробу
+    public BufferedImage separateToImages(BufferedImage image, File directory, String baseName) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage proof = RasterAccess.createRGBImage(width, height);
+
+        BufferedImage[] plates = new BufferedImage[4];
+        byte[][] plateData = new byte[4][];
+        for (int p = 0; p < 4; p++) {
+            plates[p] = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            plateData[p] = ((DataBufferByte) plates[p].getRaster().getDataBuffer()).getData();
+        }
+
+        process(image, proof, (planes, firstRow, rows) -> {
+            int offset = firstRow * width;
+            int length = rows * width;
+            for (int p = 0; p < 4; p++) {
+                byte[] plane = planes[p];
+                byte[] target = plateData[p];
+                for (int i = 0; i < length; i++) {
+                    target[offset + i] = PERCENT_TO_GRAY[plane[i]];
+                }
+            }
+        });
+
+        for (int p = 0; p < 4; p++) {
+            ImageIO.write(plates[p], "png", new File(directory, baseName + "_" + PLATES[p] + ".png"));
+        }
+        ImageIO.write(proof, "png", new File(directory, baseName + "_proof.png"));
+        return proof;
+    }
+
+    // Приёмник полосы: planes — C, M, Y, K в процентах, первые rows * width элементов
+    private interface StripSink {
+        void accept(byte[][] planes, int firstRow, int rows) throws IOException;
+    }
+
+    private void process(BufferedImage image, BufferedImage proof, StripSink sink) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int capacity = Math.min(stripRows, height) * width;
+
+        byte[][] planes = new byte[4][capacity];
+        int[] strip = new int[capacity];
+        int[] proofPixels = RasterAccess.pixelsOf(proof);
+
+        for (int y = 0; y < height; y += stripRows) {
+            int rows = Math.min(stripRows, height - y);
+            int length = rows * width;
+            RasterAccess.readPackedRows(image, y, rows, strip);
+
+            byte[] c = planes[0], m = planes[1], yellow = planes[2], k = planes[3];
+            ColorConversions.rgbToCmyk(strip, c, m, yellow, k, length);
+            sink.accept(planes, y, rows);
+
+            // Цветопроба пишется прямо в буфер результата
+            ColorConversions.cmykToRgb(c, m, yellow, k, strip, length);
+            System.arraycopy(strip, 0, proofPixels, y * width, length);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: java CmykSeparation <изображение> <выходной каталог> [--raw] [--strip N]");
+            System.exit(2);
+        }
+
+        boolean raw = false;
+        int stripRows = 256;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--raw")) {
+                raw = true;
+            } else if (args[i].equals("--strip") && i + 1 < args.length) {
+                stripRows = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        File input = new File(args[0]);
+        File directory = new File(args[1]);
+        directory.mkdirs();
+        String baseName = input.getName().replaceFirst("\\.[^.]+$", "");
+
+        BufferedImage image = ImageUtils.loadImage(input.getPath());
+        if (image == null) {
+            System.err.println("Неизвестный формат изображения: " + input);
+            System.exit(1);
+        }
+        CmykSeparation separation = new CmykSeparation(stripRows);
+
+        long start = System.nanoTime();
+        if (raw) {
+            separation.separateToRaw(image, directory, baseName);
+        } else {
+            separation.separateToImages(image, directory, baseName);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%dx%d: %.2f с, %.1f Мпикс/с%n", image.getWidth(), image.getHeight(),
+            seconds, (double) image.getWidth() * image.getHeight() / 1e6 / seconds);
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.stream.IntStream;
+
+// Преобразования RGB <-> CMYK <-> HSV из окна Main в виде библиотеки без выделения памяти.
+// Диапазоны те же, что в интерфейсе: R, G, B — 0..255; C, M, Y, K, S, V — 0..100; H — 0..360.
+//
+// Скалярные методы пишут результат в переданный массив или возвращают упакованный цвет
+// 0xRRGGBB. Пакетные работают с упакованным int[] RGB и плоскими массивами каналов
+// (byte[] для C/M/Y/K, S, V и short[] для H) на диапазоне [from, to); перегрузки с длиной
+// или без неё делят большие массивы на куски и обрабатывают их параллельно.
+//
+// Пакетные RGB -> CMYK, CMYK -> RGB и S, V из RGB -> HSV берутся из таблиц, построенных
+// скалярными формулами, поэтому результат совпадает со скалярным побитово; оттенок H и
+// HSV -> RGB считаются по формулам. Значения каналов вне диапазона в пакетных методах
+// ограничиваются границами диапазона.
+public class ColorConversions {
+
+    // Меньше этого числа пикселей параллельная обработка не окупается
+    private static final int CHUNK = 1 << 16;
+
+    // C = round(100 * (1 - r' - k) / (1 - k)) зависит только от канала и максимума
+    private static final byte[] CMY_BY_MAX_AND_CHANNEL = new byte[256 * 256];
+    // K и V зависят только от максимума, S — от максимума и минимума
+    private static final byte[] K_BY_MAX = new byte[256];
+    private static final byte[] V_BY_MAX = new byte[256];
+    private static final byte[] S_BY_MAX_AND_MIN = new byte[256 * 256];
+    // Канал RGB по паре (C, K), (M, K) или (Y, K)
+    private static final byte[] RGB_BY_CMY_AND_K = new byte[101 * 101];
+
+    static {
+        int[] cmyk = new int[4];
+        int[] hsv = new int[3];
+        for (int max = 0; max < 256; max++) {
+            rgbToCmyk(max, 0, 0, cmyk);
+            K_BY_MAX[max] = (byte) cmyk[3];
+            for (int channel = 0; channel <= max; channel++) {
+                rgbToCmyk(max, channel, 0, cmyk);
+                CMY_BY_MAX_AND_CHANNEL[max << 8 | channel] = (byte) cmyk[1];
+
+                rgbToHsv(max, channel, channel, hsv);
+                S_BY_MAX_AND_MIN[max << 8 | channel] = (byte) hsv[1];
+            }
+            rgbToHsv(max, max, max, hsv);
+            V_BY_MAX[max] = (byte) hsv[2];
+        }
+        for (int channel = 0; channel <= 100; channel++) {
+            for (int k = 0; k <= 100; k++) {
+                RGB_BY_CMY_AND_K[channel * 101 + k] = (byte) (cmykToRgb(channel, 0, 0, k) >> 16);
+            }
+        }
+    }
+
+    // --- Скалярные преобразования ---
+
+    // cmyk — массив из четырёх элементов {C, M, Y, K}
+    public static void rgbToCmyk(int r, int g, int b, int[] cmyk) {
+        double rNorm = r / 255.0;
+        double gNorm = g / 255.0;
+        double bNorm = b / 255.0;
+
+        double k = 1 - Math.max(Math.max(rNorm, gNorm), bNorm);
+
+        if (k == 1) {
+            cmyk[0] = 0;
+            cmyk[1] = 0;
+            cmyk[2] = 0;
+            cmyk[3] = 100;
+            return;
+        }
+
+        cmyk[0] = (int) Math.round((1 - rNorm - k) / (1 - k) * 100);
+        cmyk[1] = (int) Math.round((1 - gNorm - k) / (1 - k) * 100);
+        cmyk[2] = (int) Math.round((1 - bNorm - k) / (1 - k) * 100);
+        cmyk[3] = (int) Math.round(k * 100);
+    }
+
+    // Результат — упакованный 0xRRGGBB
+    public static int cmykToRgb(int c, int m, int y, int k) {
+        double cNorm = c / 100.0;
+        double mNorm = m / 100.0;
+        double yNorm = y / 100.0;
+        double kNorm = k / 100.0;
+
+        int r = (int) Math.round(255 * (1 - cNorm) * (1 - kNorm));
+        int g = (int) Math.round(255 * (1 - mNorm) * (1 - kNorm));
+        int b = (int) Math.round(255 * (1 - yNorm) * (1 - kNorm));
+
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // hsv — массив из трёх элементов {H, S, V}
+    public static void rgbToHsv(int r, int g, int b, int[] hsv) {
+        double rNorm = r / 255.0;
+        double gNorm = g / 255.0;
+        double bNorm = b / 255.0;
+
+        double max = Math.max(Math.max(rNorm, gNorm), bNorm);
+        double min = Math.min(Math.min(rNorm, gNorm), bNorm);
+        double diff = max - min;
+
+        double h = 0;
+        double s = 0;
+        double v = max;
+
+        if (diff != 0) {
+            s = diff / max;
+            h = hue(rNorm, gNorm, bNorm, max, diff);
+        }
+
+        hsv[0] = (int) Math.round(h * 360);
+        hsv[1] = (int) Math.round(s * 100);
+        hsv[2] = (int) Math.round(v * 100);
+    }
+
+    // Результат — упакованный 0xRRGGBB
+    public static int hsvToRgb(int h, int s, int v) {
+        double sNorm = s / 100.0;
+        double vNorm = v / 100.0;
+
+        double c = vNorm * sNorm;
+        double x = c * (1 - Math.abs((h / 60.0) % 2 - 1));
+        double m = vNorm - c;
+
+        double rPrime, gPrime, bPrime;
+
+        if (h >= 0 && h < 60) {
+            rPrime = c; gPrime = x; bPrime = 0;
+        } else if (h >= 60 && h < 120) {
+            rPrime = x; gPrime = c; bPrime = 0;
+        } else if (h >= 120 && h < 180) {
+            rPrime = 0; gPrime = c; bPrime = x;
+        } else if (h >= 180 && h < 240) {
+            rPrime = 0; gPrime = x; bPrime = c;
+        } else if (h >= 240 && h < 300) {
+            rPrime = x; gPrime = 0; bPrime = c;
+        } else {
+            rPrime = c; gPrime = 0; bPrime = x;
+        }
+
+        int r = (int) Math.round((rPrime + m) * 255);
+        int g = (int) Math.round((gPrime + m) * 255);
+        int b = (int) Math.round((bPrime + m) * 255);
+
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // Оттенок в долях круга [0, 1] при ненулевом diff
+    private static double hue(double rNorm, double gNorm, double bNorm, double max, double diff) {
+        double h;
+        if (rNorm == max) {
+            h = (gNorm - bNorm) / diff;
+        } else if (gNorm == max) {
+            h = 2 + (bNorm - rNorm) / diff;
+        } else {
+            h = 4 + (rNorm - gNorm) / diff;
+        }
+
+        h = h / 6.0;
+
+        if (h < 0) {
+            h += 1;
+        } else if (h > 1) {
+            h -= 1;
+        }
+        return h;
+    }
+
+    // --- Пакетные преобразования на диапазоне [from, to) ---
+
+    public static void rgbToCmyk(int[] rgb, byte[] c, byte[] m, byte[] y, byte[] k, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int r = (rgb[i] >> 16) & 0xFF;
+            int g = (rgb[i] >> 8) & 0xFF;
+            int b = rgb[i] & 0xFF;
+            int max = Math.max(Math.max(r, g), b);
+            int row = max << 8;
+
+            c[i] = CMY_BY_MAX_AND_CHANNEL[row | r];
+            m[i] = CMY_BY_MAX_AND_CHANNEL[row | g];
+            y[i] = CMY_BY_MAX_AND_CHANNEL[row | b];
+            k[i] = K_BY_MAX[max];
+        }
+    }
+
+    public static void cmykToRgb(byte[] c, byte[] m, byte[] y, byte[] k, int[] rgb, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int kk = percent(k[i]);
+            int r = RGB_BY_CMY_AND_K[percent(c[i]) * 101 + kk] & 0xFF;
+            int g = RGB_BY_CMY_AND_K[percent(m[i]) * 101 + kk] & 0xFF;
+            int b = RGB_BY_CMY_AND_K[percent(y[i]) * 101 + kk] & 0xFF;
+            rgb[i] = (r << 16) | (g << 8) | b;
+        }
+    }
+
+    public static void rgbToHsv(int[] rgb, short[] h, byte[] s, byte[] v, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int r = (rgb[i] >> 16) & 0xFF;
+            int g = (rgb[i] >> 8) & 0xFF;
+            int b = rgb[i] & 0xFF;
+            int max = Math.max(Math.max(r, g), b);
+            int min = Math.min(Math.min(r, g), b);
+
+            s[i] = S_BY_MAX_AND_MIN[max << 8 | min];
+            v[i] = V_BY_MAX[max];
+
+            if (max == min) {
+                h[i] = 0;
+            } else {
+                double maxNorm = max / 255.0;
+                double diff = maxNorm - min / 255.0;
+                h[i] = (short) Math.round(hue(r / 255.0, g / 255.0, b / 255.0, maxNorm, diff) * 360);
+            }
+        }
+    }
+
+    public static void hsvToRgb(short[] h, byte[] s, byte[] v, int[] rgb, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int hue = Math.max(0, Math.min(h[i], 360));
+            rgb[i] = hsvToRgb(hue, percent(s[i]), percent(v[i]));
+        }
+    }
+
+    // --- Пакетные преобразования первых length элементов (по умолчанию — всего массива)
+    //     с параллельной обработкой кусков ---
+
+    public static void rgbToCmyk(int[] rgb, byte[] c, byte[] m, byte[] y, byte[] k) {
+        rgbToCmyk(rgb, c, m, y, k, rgb.length);
+    }
+
+    public static void rgbToCmyk(int[] rgb, byte[] c, byte[] m, byte[] y, byte[] k, int length) {
+        forChunks(length, (from, to) -> rgbToCmyk(rgb, c, m, y, k, from, to));
+    }
+
+    public static void cmykToRgb(byte[] c, byte[] m, byte[] y, byte[] k, int[] rgb) {
+        cmykToRgb(c, m, y, k, rgb, rgb.length);
+    }
+
+    public static void cmykToRgb(byte[] c, byte[] m, byte[] y, byte[] k, int[] rgb, int length) {
+        forChunks(length, (from, to) -> cmykToRgb(c, m, y, k, rgb, from, to));
+    }
+
+    public static void rgbToHsv(int[] rgb, short[] h, byte[] s, byte[] v) {
+        rgbToHsv(rgb, h, s, v, rgb.length);
+    }
+
+    public static void rgbToHsv(int[] rgb, short[] h, byte[] s, byte[] v, int length) {
+        forChunks(length, (from, to) -> rgbToHsv(rgb, h, s, v, from, to));
+    }
+
+    public static void hsvToRgb(short[] h, byte[] s, byte[] v, int[] rgb) {
+        hsvToRgb(h, s, v, rgb, rgb.length);
+    }
+
+    public static void hsvToRgb(short[] h, byte[] s, byte[] v, int[] rgb, int length) {
+        forChunks(length, (from, to) -> hsvToRgb(h, s, v, rgb, from, to));
+    }
+
+    private interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private static void forChunks(int length, RangeAction action) {
+        if (length < 2 * CHUNK) {
+            action.run(0, length);
+            return;
+        }
+        int chunks = (length + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel()
+            .forEach(chunk -> action.run(chunk * CHUNK, Math.min(length, (chunk + 1) * CHUNK)));
+    }
+
+    // Процент из байта с ограничением диапазоном 0..100
+    private static int percent(byte value) {
+        return Math.min(value & 0xFF, 100);
+    }
+}
@@ -0,0 +1,133 @@
+import javax.swing.Timer;
+
+// Текущий цвет окна Main во всех трёх моделях: десять каналов R, G, B, C, M, Y, K, H, S, V.
+//
+// Изменение канала сразу записывается в модель, к которой он относится, а пересчёт двух
+// других моделей и уведомление слушателя откладываются до ближайшего кадра (Swing Timer,
+// FRAME_MS): сколько бы событий ни пришло за кадр от ползунка или поля ввода, выполняется
+// одно преобразование и одна перерисовка. Если за кадр менялись каналы разных моделей,
+// источником пересчёта считается последняя.
+//
+// Все методы вызываются только из EDT; таймер тоже срабатывает в EDT, поэтому флаги
+// «идёт обновление» не нужны — виджеты, получившие значение из модели, просто не
+// отличаются от неё и не порождают новых изменений.
+public class ColorState {
+
+    public static final int R = 0, G = 1, B = 2;
+    public static final int C = 3, M = 4, Y = 5, K = 6;
+    public static final int H = 7, S = 8, V = 9;
+    public static final int CHANNELS = 10;
+
+    private static final int[] MAX = {255, 255, 255, 100, 100, 100, 100, 360, 100, 100};
+
+    private static final int RGB = 0, CMYK = 1, HSV = 2;
+    private static final int FRAME_MS = 16;
+
+    private final int[] values = new int[CHANNELS];
+    private final int[] cmyk = new int[4];
+    private final int[] hsv = new int[3];
+    private final Runnable listener;
+    private final Timer timer;
+
+    private int source = RGB;
+    private boolean dirty;
+    private long events;
+    private long conversions;
+
+    // listener вызывается в EDT после каждого пересчёта
+    public ColorState(Runnable listener) {
+        this.listener = listener;
+        this.timer = new Timer(FRAME_MS, e -> flush());
+        this.timer.setRepeats(false);
+        // Начальный цвет — чёрный, согласованный во всех моделях
+        convert();
+    }
+
+    public static int max(int channel) {
+        return MAX[channel];
+    }
+
+    public int get(int channel) {
+        return values[channel];
+    }
+
+    public int getRGB() {
+        return (values[R] << 16) | (values[G] << 8) | values[B];
+    }
+
+    // Значение ограничивается диапазоном канала; совпадающее с текущим не считается изменением
+    public void set(int channel, int value) {
+        value = Math.max(0, Math.min(value, MAX[channel]));
+        if (values[channel] == value) {
+            return;
+        }
+        values[channel] = value;
+        source = modelOf(channel);
+        events++;
+        dirty = true;
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    // Пересчёт без ожидания кадра, если есть отложенные изменения
+    public void flush() {
+        timer.stop();
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        convert();
+        conversions++;
+        listener.run();
+    }
+
+    // Число изменений каналов, пришедших от виджетов, и число выполненных пересчётов
+    public long getEvents() {
+        return events;
+    }
+
+    public long getConversions() {
+        return conversions;
+    }
+
+    private void convert() {
+        int rgb;
+        switch (source) {
+            case CMYK:
+                rgb = ColorConversions.cmykToRgb(values[C], values[M], values[Y], values[K]);
+                setRGB(rgb);
+                setHSV();
+                break;
+            case HSV:
+                rgb = ColorConversions.hsvToRgb(values[H], values[S], values[V]);
+                setRGB(rgb);
+                setCMYK();
+                break;
+            default:
+                setCMYK();
+                setHSV();
+                break;
+        }
+    }
+
+    private void setRGB(int rgb) {
+        values[R] = (rgb >> 16) & 0xFF;
+        values[G] = (rgb >> 8) & 0xFF;
+        values[B] = rgb & 0xFF;
+    }
+
+    private void setCMYK() {
+        ColorConversions.rgbToCmyk(values[R], values[G], values[B], cmyk);
+        System.arraycopy(cmyk, 0, values, C, 4);
+    }
+
+    private void setHSV() {
+        ColorConversions.rgbToHsv(values[R], values[G], values[B], hsv);
+        System.arraycopy(hsv, 0, values, H, 3);
+    }
+
+    private static int modelOf(int channel) {
+        return channel < C ? RGB : channel < H ? CMYK : HSV;
+    }
+}
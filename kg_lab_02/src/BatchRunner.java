@@ -0,0 +1,358 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пакетная обработка каталога без графического интерфейса.
+// Конвейер из трёх стадий — декодирование, обработка (контраст + сегментация), кодирование —
+// со своими потоками и ограниченными очередями между ними: если запись отстаёт, обработка
+// блокируется на put(), а вслед за ней и чтение. Одновременно в памяти не больше
+// 2 * размер очереди + 2 * потоков обработки + 2 * потоков ввода-вывода изображений:
+// по заполненной очереди на каждом стыке, у обработчика — исходное и результат (пока он
+// ждёт на put()), у декодера и кодировщика — по одному.
+//
+// Запуск:
+//   java BatchRunner <входной каталог> <выходной каталог> [параметры]
+//     --method linear|equalize         метод контрастирования (по умолчанию linear)
+//     --color RGB|HSV                  цветовое пространство для выравнивания (RGB)
+//     --segmentation none|points|lines|edges   (none)
+//     --threshold N                    порог сегментации (50)
+//     --threads N                      потоков обработки (число ядер)
+//     --queue N                        ёмкость очередей между стадиями (4)
+//     --stream N                       потоковая обработка полосами по N строк (StreamingProcessor):
+//                                      для изображений больше кучи; только контраст, без сегментации
+// Результат для каждого файла записывается в выходной каталог как <имя файла>.png
+// (photo.jpg -> photo.jpg.png).
+public class BatchRunner {
+
+    private static final String[] EXTENSIONS = {".jpg", ".jpeg", ".png", ".gif", ".bmp"};
+
+    // Изображение между стадиями; end == true — сигнал завершения для следующей стадии
+    private static class Job {
+        final File source;
+        final BufferedImage image;
+        final boolean end;
+
+        Job(File source, BufferedImage image, boolean end) {
+            this.source = source;
+            this.image = image;
+            this.end = end;
+        }
+    }
+
+    private static final Job END = new Job(null, null, true);
+
+    private final String method;
+    private final String colorSpace;
+    private final String segmentation;
+    private final int threshold;
+    private final int processThreads;
+    private final int queueCapacity;
+    private final int streamRows;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong pixels = new AtomicLong();
+
+    public BatchRunner(String method, String colorSpace, String segmentation, int threshold,
+                       int processThreads, int queueCapacity, int streamRows) {
+        this.method = method;
+        this.colorSpace = colorSpace;
+        this.segmentation = segmentation;
+        this.threshold = threshold;
+        this.processThreads = processThreads;
+        this.queueCapacity = queueCapacity;
+        this.streamRows = streamRows;
+    }
+
+    public void run(File inputDir, File outputDir) throws InterruptedException {
+        File[] files = inputDir.listFiles((dir, name) -> isImage(name));
+        if (files == null) {
+            throw new IllegalArgumentException("Не каталог: " + inputDir);
+        }
+        Arrays.sort(files);
+        outputDir.mkdirs();
+
+        if (streamRows > 0) {
+            runStreaming(files, outputDir);
+            return;
+        }
+
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Job> results = new ArrayBlockingQueue<>(queueCapacity);
+        ImageProcessor processor = new ImageProcessor(1);
+
+        // Декодирование и кодирование упираются в ввод-вывод и распаковку, поэтому
+        // им достаточно по паре потоков; основная параллельность — в обработке
+        int ioThreads = Math.max(1, Math.min(2, processThreads));
+        AtomicInteger nextFile = new AtomicInteger();
+        AtomicInteger decodersLeft = new AtomicInteger(ioThreads);
+        AtomicInteger processorsLeft = new AtomicInteger(processThreads);
+
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < ioThreads; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    int index;
+                    while ((index = nextFile.getAndIncrement()) < files.length) {
+                        File file = files[index];
+                        try {
+                            BufferedImage image = ImageIO.read(file);
+                            if (image == null) {
+                                throw new IOException("неизвестный формат");
+                            }
+                            decoded.put(new Job(file, image, false));
+                        } catch (IOException | RuntimeException | Error e) {
+                            // Error (например, OutOfMemoryError на огромном заголовке) — ошибка
+                            // этого файла: изображение отбрасывается, конвейер продолжает работу
+                            fail(file, e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    // Последний декодер сообщает всем обработчикам о конце входа, как бы ни
+                    // завершился поток, иначе следующие стадии навсегда остались бы в take()
+                    if (decodersLeft.decrementAndGet() == 0) {
+                        signalEnd(decoded, processThreads);
+                    }
+                }
+            }, "decode-" + i));
+        }
+
+        for (int i = 0; i < processThreads; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (Job job = decoded.take(); !job.end; job = decoded.take()) {
+                        try {
+                            BufferedImage result = processor.processImage(job.image, method, colorSpace);
+                            result = SegmentationUtils.segment(result, segmentation, threshold);
+                            results.put(new Job(job.source, result, false));
+                        } catch (RuntimeException | Error e) {
+                            fail(job.source, e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (processorsLeft.decrementAndGet() == 0) {
+                        signalEnd(results, ioThreads);
+                    }
+                }
+            }, "process-" + i));
+        }
+
+        for (int i = 0; i < ioThreads; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (Job job = results.take(); !job.end; job = results.take()) {
+                        // Исходное расширение остаётся в имени: a.jpg и a.png не должны
+                        // перезаписать друг друга как a.png
+                        File target = new File(outputDir, job.source.getName() + ".png");
+                        try {
+                            ImageIO.write(job.image, "png", target);
+                            processed.incrementAndGet();
+                            pixels.addAndGet((long) job.image.getWidth() * job.image.getHeight());
+                        } catch (IOException | RuntimeException | Error e) {
+                            fail(job.source, e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "encode-" + i));
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        processor.close();
+        report(start);
+    }
+
+    // Потоковый режим: изображение целиком не декодируется, поэтому конвейер из очередей
+    // изображений не нужен — файлы идут по одному, а потоки обработки делят каждую полосу
+    private void runStreaming(File[] files, File outputDir) {
+        long start = System.nanoTime();
+        try (StreamingProcessor streaming = new StreamingProcessor(streamRows, processThreads)) {
+            for (File file : files) {
+                try {
+                    pixels.addAndGet(streaming.process(file, new File(outputDir, file.getName() + ".png"), method, colorSpace));
+                    processed.incrementAndGet();
+                } catch (IOException | RuntimeException | Error e) {
+                    fail(file, e);
+                }
+            }
+        }
+        report(start);
+    }
+
+    private void report(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Обработано: %d, ошибок: %d, время: %.2f с%n", processed.get(), failed.get(), seconds);
+        System.out.printf(Locale.ROOT, "Пропускная способность: %.2f изобр/с, %.2f Мпикс/с%n",
+            processed.get() / seconds, pixels.get() / 1e6 / seconds);
+    }
+
+    private void fail(File file, Throwable e) {
+        failed.incrementAndGet();
+        System.err.println("Ошибка обработки " + file + ": " + (e instanceof Error ? e.toString() : e.getMessage()));
+    }
+
+    // Кладёт count сигналов END; прерывание не должно оставить следующую стадию без сигнала,
+    // поэтому флаг прерывания восстанавливается только после того, как все сигналы в очереди
+    private static void signalEnd(BlockingQueue<Job> queue, int count) {
+        boolean interrupted = Thread.interrupted();
+        for (int j = 0; j < count; j++) {
+            while (true) {
+                try {
+                    queue.put(END);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) return true;
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage(null);
+        }
+
+        String method = "Линейное контрастирование";
+        String colorSpace = "RGB";
+        String segmentation = "Без сегментации";
+        int threshold = 50;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 4;
+        int stream = 0;
+
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                usage("не задано значение параметра " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--method":
+                    method = methodName(value);
+                    break;
+                case "--color":
+                    colorSpace = value.toUpperCase(Locale.ROOT);
+                    if (!colorSpace.equals("RGB") && !colorSpace.equals("HSV")) {
+                        usage("неизвестное цветовое пространство: " + value);
+                    }
+                    break;
+                case "--segmentation":
+                    segmentation = segmentationName(value);
+                    break;
+                case "--threshold":
+                    threshold = number(args[i], value, 0);
+                    break;
+                case "--threads":
+                    threads = number(args[i], value, 1);
+                    break;
+                case "--queue":
+                    queue = number(args[i], value, 1);
+                    break;
+                case "--stream":
+                    stream = number(args[i], value, 1);
+                    break;
+                default:
+                    usage("неизвестный параметр: " + args[i]);
+            }
+        }
+
+        if (stream > 0 && !segmentation.equals("Без сегментации")) {
+            usage("сегментация не поддерживается в потоковом режиме --stream");
+        }
+        File inputDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+        if (!inputDir.isDirectory()) {
+            usage("входной каталог не найден: " + inputDir);
+        }
+        if (outputDir.exists() && !outputDir.isDirectory()) {
+            usage("выходной путь не является каталогом: " + outputDir);
+        }
+
+        new BatchRunner(method, colorSpace, segmentation, threshold, threads, queue, stream)
+            .run(inputDir, outputDir);
+    }
+
+    private static void usage(String error) {
+        if (error != null) {
+            System.err.println("Ошибка: " + error);
+        }
+        System.err.println("Использование: java BatchRunner <входной каталог> <выходной каталог> "
+            + "[--method linear|equalize] [--color RGB|HSV] [--segmentation none|points|lines|edges] "
+            + "[--threshold N] [--threads N] [--queue N] [--stream N]");
+        System.exit(2);
+    }
+
+    // Целое не меньше min; иначе — ошибка использования (0 потоков повесил бы конвейер)
+    private static int number(String option, String value, int min) {
+        int result = 0;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            usage("ожидалось целое число для " + option + ": " + value);
+        }
+        if (result < min) {
+            usage(option + " должно быть не меньше " + min + ": " + value);
+        }
+        return result;
+    }
+
+    private static String methodName(String value) {
+        switch (value) {
+            case "linear":
+                return "Линейное контрастирование";
+            case "equalize":
+                return "Выравнивание гистограммы";
+            default:
+                usage("неизвестный метод: " + value);
+                return null;
+        }
+    }
+
+    private static String segmentationName(String value) {
+        switch (value) {
+            case "none":
+                return "Без сегментации";
+            case "points":
+                return "Обнаружение точек";
+            case "lines":
+                return "Обнаружение линий";
+            case "edges":
+                return "Обнаружение перепадов яркости";
+            default:
+                usage("неизвестный метод сегментации: " + value);
+                return null;
+        }
+    }
+}
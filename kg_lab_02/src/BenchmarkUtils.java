@@ -0,0 +1,96 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+// Минимальный измерительный каркас для бенчмарков модуля: прогрев, несколько замеров,
+// печать среднего и минимального времени. Результат каждой операции «поглощается»,
+// чтобы JIT не удалил вычисления как мёртвый код.
+public class BenchmarkUtils {
+
+    public interface Operation {
+        Object run();
+    }
+
+    private static volatile int sink;
+
+    public static double measure(String name, int warmupIterations, int iterations, Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            consume(operation.run());
+        }
+
+        long total = 0;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            consume(operation.run());
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            best = Math.min(best, elapsed);
+        }
+
+        double averageMs = total / (double) iterations / 1_000_000.0;
+        System.out.printf("%-45s среднее %9.3f мс   лучшее %9.3f мс%n", name, averageMs, best / 1_000_000.0);
+        return averageMs;
+    }
+
+    // Объём памяти, выделенной текущим потоком за одну операцию (аналог JMH -prof gc
+    // для однопоточного прогона). Возвращает -1, если JVM не поддерживает такой учёт.
+    public static long measureAllocation(String name, Operation operation) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.printf("%-45s учёт выделений недоступен%n", name);
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+
+        consume(operation.run());
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        consume(operation.run());
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.printf("%-45s выделено %,15d байт/оп%n", name, allocated);
+        return allocated;
+    }
+
+    public static void consume(Object value) {
+        sink ^= System.identityHashCode(value);
+    }
+
+    // Изображение для замеров: файл из аргументов или синтетический шум заданного размера
+    public static BufferedImage loadOrGenerate(String[] args, int defaultWidth, int defaultHeight) throws IOException {
+        if (args.length > 0 && new File(args[0]).isFile()) {
+            return ImageUtils.loadImage(args[0]);
+        }
+
+        BufferedImage image = new BufferedImage(defaultWidth, defaultHeight, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(42);
+        for (int y = 0; y < defaultHeight; y++) {
+            for (int x = 0; x < defaultWidth; x++) {
+                // Плавный градиент с шумом, чтобы гистограммы были не вырожденными
+                int r = Math.min(255, x * 200 / defaultWidth + random.nextInt(40));
+                int g = Math.min(255, y * 200 / defaultHeight + random.nextInt(40));
+                int b = Math.min(255, (x + y) * 100 / (defaultWidth + defaultHeight) + random.nextInt(80));
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    public static boolean samePixels(BufferedImage a, BufferedImage b) {
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return false;
+        }
+        int[] pixelsA = a.getRGB(0, 0, a.getWidth(), a.getHeight(), null, 0, a.getWidth());
+        int[] pixelsB = b.getRGB(0, 0, b.getWidth(), b.getHeight(), null, 0, b.getWidth());
+        return java.util.Arrays.equals(pixelsA, pixelsB);
+    }
+
+    public static void requireSame(String name, BufferedImage actual, BufferedImage expected) {
+        if (!samePixels(actual, expected)) {
+            throw new IllegalStateException("Результат отличается от эталона: " + name);
+        }
+    }
+}
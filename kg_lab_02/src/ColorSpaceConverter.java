@@ -2,11 +2,17 @@ public class ColorSpaceConverter {
     
     // Преобразование RGB в HSV
     public static float[] rgbToHSV(int rgb) {
+        float[] hsv = new float[3];
+        rgbToHSV(rgb, hsv);
+        return hsv;
+    }
+    
+    // Преобразование RGB в HSV с записью в переданный буфер (без выделения памяти)
+    public static void rgbToHSV(int rgb, float[] hsv) {
         int r = (rgb >> 16) & 0xFF;
         int g = (rgb >> 8) & 0xFF;
         int b = rgb & 0xFF;
         
-        float[] hsv = new float[3];
         float min = Math.min(Math.min(r, g), b) / 255.0f;
         float max = Math.max(Math.max(r, g), b) / 255.0f;
         float delta = max - min;
@@ -35,15 +41,16 @@ public class ColorSpaceConverter {
         hsv[0] *= 60;
         if (hsv[0] < 0) hsv[0] += 360;
         hsv[0] /= 360; // Нормализуем Hue
-        
-        return hsv;
     }
     
     // Преобразование HSV в RGB
     public static int hsvToRGB(float[] hsv) {
-        float h = hsv[0] * 360;
-        float s = hsv[1];
-        float v = hsv[2];
+        return hsvToRGB(hsv[0], hsv[1], hsv[2]);
+    }
+    
+    // Преобразование HSV в RGB по отдельным компонентам (без массива)
+    public static int hsvToRGB(float hue, float s, float v) {
+        float h = hue * 360;
         
         if (s == 0) {
             int gray = (int) (v * 255);
@@ -0,0 +1,174 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+// Свёртка 3x3 над плоским массивом оттенков серого (байт на пиксель, строки подряд).
+// Отклик считается только для внутренних пикселей (1..width-2, 1..height-2), поэтому
+// проверок границ во внутренних циклах нет. Ядра, раскладывающиеся во внешнее произведение
+// столбца на строку (Собель, маски линий), считаются двумя одномерными проходами; ядра вида
+// «разделимое + k * центр» (лапласиан) — так же, с поправкой на центральный пиксель.
+// Внутренние циклы — простые счётные циклы по массивам, которые C2 умеет векторизовать.
+public class ConvolutionEngine {
+
+    // Значения, которые getRGB возвращает для байта TYPE_BYTE_GRAY (линейный серый → sRGB).
+    // Прежние детекторы читали пиксели именно так, поэтому серый буфер переводится по этой таблице.
+    private static final byte[] GRAY_TO_SRGB = new byte[256];
+
+    static {
+        BufferedImage ramp = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) ramp.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < 256; i++) {
+            data[i] = (byte) i;
+        }
+        for (int i = 0; i < 256; i++) {
+            GRAY_TO_SRGB[i] = (byte) (ramp.getRGB(i, 0) & 0xFF);
+        }
+    }
+
+    public static final class Kernel {
+        private final int[] weights;   // 9 весов построчно
+        private final int[] column;    // разложение: weights[i][j] = column[i] * row[j] + (i == j == 1 ? center : 0)
+        private final int[] row;
+        private final int center;
+
+        private Kernel(int[] weights, int[] column, int[] row, int center) {
+            this.weights = weights;
+            this.column = column;
+            this.row = row;
+            this.center = center;
+        }
+
+        public boolean isSeparable() {
+            return column != null;
+        }
+    }
+
+    public static Kernel kernel(int[][] mask) {
+        int[] weights = new int[9];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                weights[i * 3 + j] = mask[i][j];
+            }
+        }
+
+        int[][] factors = factorize(weights);
+        if (factors != null) {
+            return new Kernel(weights, factors[0], factors[1], 0);
+        }
+
+        // Ядро вида «разделимое + k * центр»: центр остатка определяется угловым элементом
+        if (weights[0] != 0 && (weights[1] * weights[3]) % weights[0] == 0) {
+            int[] remainder = weights.clone();
+            remainder[4] = weights[1] * weights[3] / weights[0];
+            factors = factorize(remainder);
+            if (factors != null) {
+                return new Kernel(weights, factors[0], factors[1], weights[4] - remainder[4]);
+            }
+        }
+
+        return new Kernel(weights, null, null, 0);
+    }
+
+    // Серое изображение тем же преобразованием, что и прежде (drawImage в TYPE_BYTE_GRAY + getRGB)
+    public static byte[] toGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+
+        Graphics g = gray.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+
+        byte[] data = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = GRAY_TO_SRGB[data[i] & 0xFF];
+        }
+        return data;
+    }
+
+    // Отклик ядра для строки y; заполняются out[1..width-2].
+    // scratch — рабочая строка длиной не меньше width (нужна разделимым ядрам)
+    public static void convolveRow(byte[] gray, int width, int y, Kernel kernel, int[] scratch, int[] out) {
+        int above = (y - 1) * width;
+        int middle = y * width;
+        int below = (y + 1) * width;
+
+        if (kernel.isSeparable()) {
+            // Вертикальный проход по всей строке, затем горизонтальный
+            int c0 = kernel.column[0], c1 = kernel.column[1], c2 = kernel.column[2];
+            for (int x = 0; x < width; x++) {
+                scratch[x] = c0 * (gray[above + x] & 0xFF)
+                           + c1 * (gray[middle + x] & 0xFF)
+                           + c2 * (gray[below + x] & 0xFF);
+            }
+
+            int r0 = kernel.row[0], r1 = kernel.row[1], r2 = kernel.row[2];
+            int center = kernel.center;
+            for (int x = 1; x < width - 1; x++) {
+                out[x] = r0 * scratch[x - 1] + r1 * scratch[x] + r2 * scratch[x + 1]
+                       + center * (gray[middle + x] & 0xFF);
+            }
+            return;
+        }
+
+        int[] w = kernel.weights;
+        int w0 = w[0], w1 = w[1], w2 = w[2];
+        int w3 = w[3], w4 = w[4], w5 = w[5];
+        int w6 = w[6], w7 = w[7], w8 = w[8];
+        for (int x = 1; x < width - 1; x++) {
+            out[x] = w0 * (gray[above + x - 1] & 0xFF) + w1 * (gray[above + x] & 0xFF) + w2 * (gray[above + x + 1] & 0xFF)
+                   + w3 * (gray[middle + x - 1] & 0xFF) + w4 * (gray[middle + x] & 0xFF) + w5 * (gray[middle + x + 1] & 0xFF)
+                   + w6 * (gray[below + x - 1] & 0xFF) + w7 * (gray[below + x] & 0xFF) + w8 * (gray[below + x + 1] & 0xFF);
+        }
+    }
+
+    // Разложение ядра ранга 1 в целых числах: {столбец, строка} или null
+    private static int[][] factorize(int[] w) {
+        int pivot = -1;
+        for (int i = 0; i < 9; i++) {
+            if (w[i] != 0) {
+                pivot = i;
+                break;
+            }
+        }
+        if (pivot < 0) {
+            return null;
+        }
+
+        int pivotRow = pivot / 3;
+        int pivotColumn = pivot % 3;
+
+        int divisor = gcd(gcd(Math.abs(w[pivotRow * 3]), Math.abs(w[pivotRow * 3 + 1])), Math.abs(w[pivotRow * 3 + 2]));
+        int[] row = new int[3];
+        for (int j = 0; j < 3; j++) {
+            row[j] = w[pivotRow * 3 + j] / divisor;
+        }
+
+        int[] column = new int[3];
+        for (int i = 0; i < 3; i++) {
+            int numerator = w[i * 3 + pivotColumn];
+            if (numerator % row[pivotColumn] != 0) {
+                return null;
+            }
+            column[i] = numerator / row[pivotColumn];
+        }
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (column[i] * row[j] != w[i * 3 + j]) {
+                    return null;
+                }
+            }
+        }
+        return new int[][]{column, row};
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
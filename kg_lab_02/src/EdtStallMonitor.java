@@ -0,0 +1,59 @@
+import javax.swing.SwingUtilities;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Замер отзывчивости интерфейса: фоновый поток каждые PERIOD_MS ставит в очередь EDT
+// пустую задачу и смотрит, через сколько она выполнилась. Задержка сверх STALL_MS
+// считается зависанием; сводка (число, суммарное и максимальное время зависаний)
+// печатается при каждом новом максимуме и по запросу через report().
+// Включается свойством -Dkg.edtMonitor=true.
+public class EdtStallMonitor {
+
+    private static final long PERIOD_MS = 10;
+    private static final long STALL_MS = 50;
+
+    private final AtomicLong stallCount = new AtomicLong();
+    private final AtomicLong stallTotalMs = new AtomicLong();
+    private final AtomicLong stallMaxMs = new AtomicLong();
+
+    public static EdtStallMonitor startIfEnabled() {
+        if (!Boolean.getBoolean("kg.edtMonitor")) {
+            return null;
+        }
+        EdtStallMonitor monitor = new EdtStallMonitor();
+        Thread thread = new Thread(monitor::run, "edt-stall-monitor");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(monitor.report())));
+        return monitor;
+    }
+
+    private void run() {
+        while (true) {
+            long delayMs;
+            try {
+                long posted = System.nanoTime();
+                SwingUtilities.invokeAndWait(() -> { });
+                delayMs = (System.nanoTime() - posted) / 1_000_000;
+                Thread.sleep(PERIOD_MS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                continue;
+            }
+
+            if (delayMs > STALL_MS) {
+                stallCount.incrementAndGet();
+                stallTotalMs.addAndGet(delayMs);
+                if (delayMs > stallMaxMs.getAndAccumulate(delayMs, Math::max)) {
+                    System.out.println(report());
+                }
+            }
+        }
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "EDT: зависаний > %d мс: %d, всего %d мс, максимум %d мс",
+            STALL_MS, stallCount.get(), stallTotalMs.get(), stallMaxMs.get());
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Целочисленное преобразование RGB <-> HSV на таблицах обратных величин, без деления
+// с плавающей точкой, Math.floor и массивов на пиксель.
+//
+// Упакованный HSV: (H << 16) | (S << 8) | V, где H — 0..1535 (шесть секторов по 256 шагов,
+// H / 1536 соответствует hue из ColorSpaceConverter), S и V — 0..255 (s * 255 и v * 255).
+//
+// Точность (проверяется полным перебором 2^24 цветов в FixedPointHSVBenchmark):
+//   - отклонение от ColorSpaceConverter.rgbToHSV: H не больше 0.53 шага (около 1/2900 круга),
+//     S — не больше 0.52 уровня из 255 (половина шага округления плюс погрешность самого
+//     float-эталона), V совпадает точно;
+//   - RGB -> HSV -> RGB: каждый канал восстанавливается с ошибкой не больше 1 уровня.
+//
+// Для конвейеров, где важна только скорость прямого преобразования, есть полная таблица
+// 2^24 -> упакованный HSV (64 МБ) в файле, отображённом в память: она создаётся при первом
+// обращении к lookup() и затем читается ОС по страницам по мере надобности, не занимая кучу.
+public class FixedPointHSV {
+
+    public static final int HUE_STEPS = 1536;
+
+    // Обратные величины 2^20 / d с округлением: x / d == (x * RECIPROCAL[d] + 2^19) >> 20
+    // для |x| <= 255 * 256 — ошибка таблицы меньше половины младшего разряда результата
+    private static final int[] RECIPROCAL = new int[256];
+
+    static {
+        for (int d = 1; d < 256; d++) {
+            RECIPROCAL[d] = (int) Math.round((double) (1 << 20) / d);
+        }
+    }
+
+    public static int rgbToHSV(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+
+        int max = Math.max(Math.max(r, g), b);
+        int min = Math.min(Math.min(r, g), b);
+        int delta = max - min;
+        if (delta == 0) {
+            return max;
+        }
+
+        int reciprocal = RECIPROCAL[delta];
+        int s = (delta * 255 * RECIPROCAL[max] + (1 << 19)) >> 20;
+        int h;
+        if (max == r) {
+            h = ((g - b) * 256 * reciprocal + (1 << 19)) >> 20;
+            if (h < 0) h += HUE_STEPS;
+        } else if (max == g) {
+            h = 512 + (((b - r) * 256 * reciprocal + (1 << 19)) >> 20);
+        } else {
+            h = 1024 + (((r - g) * 256 * reciprocal + (1 << 19)) >> 20);
+        }
+        return (h << 16) | (s << 8) | max;
+    }
+
+    public static int hsvToRGB(int hsv) {
+        int h = hsv >>> 16;
+        int s = (hsv >> 8) & 0xFF;
+        int v = hsv & 0xFF;
+        if (s == 0) {
+            return (v << 16) | (v << 8) | v;
+        }
+
+        int sector = h >> 8;
+        int f = h & 0xFF;
+        // Делители 255 и 255 * 256 — константы, JIT заменяет деление умножением
+        int p = (v * (255 - s) + 127) / 255;
+        int q = (v * (255 * 256 - s * f) + 32640) / (255 * 256);
+        int t = (v * (255 * 256 - s * (256 - f)) + 32640) / (255 * 256);
+
+        switch (sector) {
+            case 0: return (v << 16) | (t << 8) | p;
+            case 1: return (q << 16) | (v << 8) | p;
+            case 2: return (p << 16) | (v << 8) | t;
+            case 3: return (p << 16) | (q << 8) | v;
+            case 4: return (t << 16) | (p << 8) | v;
+            default: return (v << 16) | (p << 8) | q;
+        }
+    }
+
+    // Пакетное преобразование диапазона [from, to) упакованных массивов
+    public static void rgbToHSV(int[] rgb, int[] hsv, int from, int to) {
+        for (int i = from; i < to; i++) {
+            hsv[i] = rgbToHSV(rgb[i]);
+        }
+    }
+
+    public static void hsvToRGB(int[] hsv, int[] rgb, int from, int to) {
+        for (int i = from; i < to; i++) {
+            rgb[i] = hsvToRGB(hsv[i]);
+        }
+    }
+
+    public static float hue(int hsv) {
+        return (hsv >>> 16) / (float) HUE_STEPS;
+    }
+
+    public static float saturation(int hsv) {
+        return ((hsv >> 8) & 0xFF) / 255.0f;
+    }
+
+    public static float value(int hsv) {
+        return (hsv & 0xFF) / 255.0f;
+    }
+
+    // Прямое преобразование через полную таблицу; результат совпадает с rgbToHSV(rgb)
+    public static int lookup(int rgb) {
+        return MappedTable.TABLE.get(rgb & 0xFFFFFF);
+    }
+
+    public static void lookup(int[] rgb, int[] hsv, int from, int to) {
+        IntBuffer table = MappedTable.TABLE;
+        for (int i = from; i < to; i++) {
+            hsv[i] = table.get(rgb[i] & 0xFFFFFF);
+        }
+    }
+
+    // Ленивая инициализация при первом обращении к TABLE. Путь к файлу задаётся свойством
+    // kg.hsvLutFile; по умолчанию — во временном каталоге. Файл неверного размера пересоздаётся.
+    private static class MappedTable {
+        private static final long SIZE_BYTES = 4L << 24;
+        private static final IntBuffer TABLE = open(new File(System.getProperty("kg.hsvLutFile",
+            new File(System.getProperty("java.io.tmpdir"), "kg-hsv-lut.bin").getPath())));
+
+        private static IntBuffer open(File file) {
+            try {
+                if (!file.isFile() || file.length() != SIZE_BYTES) {
+                    generate(file);
+                }
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, SIZE_BYTES);
+                    return buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось подготовить таблицу HSV: " + file, e);
+            }
+        }
+
+        // Запись во временный файл и переименование, чтобы параллельные процессы
+        // не увидели недописанную таблицу
+        private static void generate(File file) throws IOException {
+            File temp = File.createTempFile("kg-hsv-lut", ".tmp", file.getAbsoluteFile().getParentFile());
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.allocateDirect(4 << 16).order(ByteOrder.nativeOrder());
+                IntBuffer ints = chunk.asIntBuffer();
+                for (int high = 0; high < 256; high++) {
+                    ints.clear();
+                    for (int low = 0; low < 1 << 16; low++) {
+                        ints.put(rgbToHSV((high << 16) | low));
+                    }
+                    chunk.clear();
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Locale;
+import java.util.Random;
+
+// Точность FixedPointHSV полным перебором 2^24 цветов и скорость преобразований
+// по сравнению с ColorSpaceConverter (в миллионах пикселей в секунду).
+// Запуск: java FixedPointHSVBenchmark [число пикселей в замере] [--lut]
+//   --lut — также замерить полную таблицу в файле (при первом запуске создаётся файл 64 МБ)
+public class FixedPointHSVBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 1 << 22;
+        boolean withLut = args.length > 0 && args[args.length - 1].equals("--lut");
+
+        reportAccuracy();
+
+        int[] rgb = new int[count];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            rgb[i] = random.nextInt(1 << 24);
+        }
+        int[] hsv = new int[count];
+        int[] back = new int[count];
+        float[] buffer = new float[3];
+
+        throughput("float: RGB -> HSV", count, BenchmarkUtils.measure("float: RGB -> HSV", 3, 10, () -> {
+            for (int i = 0; i < count; i++) {
+                ColorSpaceConverter.rgbToHSV(rgb[i], buffer);
+                hsv[i] = Float.floatToRawIntBits(buffer[0]);
+            }
+            return hsv;
+        }));
+        throughput("float: RGB -> HSV -> RGB", count, BenchmarkUtils.measure("float: RGB -> HSV -> RGB", 3, 10, () -> {
+            for (int i = 0; i < count; i++) {
+                ColorSpaceConverter.rgbToHSV(rgb[i], buffer);
+                back[i] = ColorSpaceConverter.hsvToRGB(buffer[0], buffer[1], buffer[2]);
+            }
+            return back;
+        }));
+        throughput("fixed: RGB -> HSV", count, BenchmarkUtils.measure("fixed: RGB -> HSV", 3, 10, () -> {
+            FixedPointHSV.rgbToHSV(rgb, hsv, 0, count);
+            return hsv;
+        }));
+        throughput("fixed: RGB -> HSV -> RGB", count, BenchmarkUtils.measure("fixed: RGB -> HSV -> RGB", 3, 10, () -> {
+            FixedPointHSV.rgbToHSV(rgb, hsv, 0, count);
+            FixedPointHSV.hsvToRGB(hsv, back, 0, count);
+            return back;
+        }));
+
+        if (withLut) {
+            FixedPointHSV.lookup(0);
+            throughput("таблица: RGB -> HSV", count, BenchmarkUtils.measure("таблица: RGB -> HSV", 3, 10, () -> {
+                FixedPointHSV.lookup(rgb, hsv, 0, count);
+                return hsv;
+            }));
+            for (int i = 0; i < count; i++) {
+                if (FixedPointHSV.lookup(rgb[i]) != FixedPointHSV.rgbToHSV(rgb[i])) {
+                    throw new IllegalStateException("Таблица расходится с rgbToHSV для " + Integer.toHexString(rgb[i]));
+                }
+            }
+        }
+    }
+
+    // Отклонения от float-версии и ошибка возврата в RGB по всем цветам
+    private static void reportAccuracy() {
+        float[] reference = new float[3];
+        double maxHue = 0, maxSaturation = 0, maxValue = 0;
+        int maxRoundTrip = 0, worstColor = 0;
+
+        for (int rgb = 0; rgb < 1 << 24; rgb++) {
+            int hsv = FixedPointHSV.rgbToHSV(rgb);
+            ColorSpaceConverter.rgbToHSV(rgb, reference);
+
+            double hue = Math.abs((hsv >>> 16) - reference[0] * FixedPointHSV.HUE_STEPS);
+            maxHue = Math.max(maxHue, Math.min(hue, FixedPointHSV.HUE_STEPS - hue));
+            maxSaturation = Math.max(maxSaturation, Math.abs(((hsv >> 8) & 0xFF) - reference[1] * 255));
+            maxValue = Math.max(maxValue, Math.abs((hsv & 0xFF) - reference[2] * 255));
+
+            int back = FixedPointHSV.hsvToRGB(hsv);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int error = Math.abs(((back >> shift) & 0xFF) - ((rgb >> shift) & 0xFF));
+                if (error > maxRoundTrip) {
+                    maxRoundTrip = error;
+                    worstColor = rgb;
+                }
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "Отклонение от float: H %.3f шага из %d, S %.3f, V %.3f уровня%n",
+            maxHue, FixedPointHSV.HUE_STEPS, maxSaturation, maxValue);
+        System.out.printf(Locale.ROOT, "RGB -> HSV -> RGB: максимальная ошибка канала %d (цвет %06x)%n",
+            maxRoundTrip, worstColor);
+    }
+
+    private static void throughput(String name, int count, double averageMs) {
+        System.out.printf(Locale.ROOT, "%-45s %9.1f Мпикс/с%n", name, count / averageMs / 1000.0);
+    }
+}
@@ -0,0 +1,174 @@
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Кэш гистограмм и готовых графиков для изображений с вытеснением давно не использованных
+// записей (LRU) при превышении бюджета памяти. Ключ — само изображение (по ссылке) либо,
+// если включено хэширование содержимого, хэш его пикселей: тогда повторная обработка,
+// давшая тот же результат, тоже попадает в кэш.
+public class HistogramCache {
+
+    // Готовые результаты для одного изображения
+    public static class Entry {
+        private final HistogramSet histograms;
+        private final BufferedImage combinedChart;
+        private final BufferedImage redChart;
+        private final BufferedImage greenChart;
+        private final BufferedImage blueChart;
+        private final BufferedImage luminanceChart;
+        private final long sizeInBytes;
+
+        Entry(HistogramSet histograms) {
+            this.histograms = histograms;
+            this.combinedChart = HistogramUtils.createCombinedHistogramImage(histograms);
+            this.redChart = HistogramUtils.createRedHistogramImage(histograms);
+            this.greenChart = HistogramUtils.createGreenHistogramImage(histograms);
+            this.blueChart = HistogramUtils.createBlueHistogramImage(histograms);
+            this.luminanceChart = HistogramUtils.createLuminanceHistogramImage(histograms);
+            this.sizeInBytes = 4L * 4 * 256
+                + chartBytes(combinedChart) + chartBytes(redChart) + chartBytes(greenChart)
+                + chartBytes(blueChart) + chartBytes(luminanceChart);
+        }
+
+        public HistogramSet getHistograms() {
+            return histograms;
+        }
+
+        public BufferedImage getCombinedChart() {
+            return combinedChart;
+        }
+
+        public BufferedImage getRedChart() {
+            return redChart;
+        }
+
+        public BufferedImage getGreenChart() {
+            return greenChart;
+        }
+
+        public BufferedImage getBlueChart() {
+            return blueChart;
+        }
+
+        public BufferedImage getLuminanceChart() {
+            return luminanceChart;
+        }
+
+        public long getSizeInBytes() {
+            return sizeInBytes;
+        }
+
+        private static long chartBytes(BufferedImage chart) {
+            return 4L * chart.getWidth() * chart.getHeight();
+        }
+    }
+
+    // Ключ по содержимому: размеры и 64-битный хэш пикселей
+    private static final class ContentKey {
+        private final int width, height;
+        private final long hash;
+
+        ContentKey(int width, int height, long hash) {
+            this.width = width;
+            this.height = height;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ContentKey)) return false;
+            ContentKey other = (ContentKey) o;
+            return width == other.width && height == other.height && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + width * 17 + height;
+        }
+    }
+
+    private final long budgetBytes;
+    private final boolean hashContent;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // BufferedImage не переопределяет equals, поэтому WeakHashMap сравнивает изображения по ссылке
+    // и не удерживает их в памяти
+    private final Map<BufferedImage, Object> keysByImage = new WeakHashMap<>();
+    private long usedBytes;
+    private long hits, misses;
+
+    public HistogramCache(long budgetBytes, boolean hashContent) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Бюджет кэша должен быть положительным: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+        this.hashContent = hashContent;
+    }
+
+    // Для изображения, которое кэш ещё не видел, гистограммы и хэш содержимого считаются
+    // за один проход; при попадании по хэшу гистограммы отбрасываются, а графики берутся готовые
+    public synchronized Entry get(BufferedImage image) {
+        Object key = keysByImage.get(image);
+        if (key != null) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+        }
+
+        HistogramSet histograms;
+        if (key != null) {
+            // Запись вытеснена, но ключ изображения известен
+            histograms = HistogramSet.compute(image);
+        } else if (hashContent) {
+            histograms = HistogramSet.computeWithContentHash(image);
+            key = new ContentKey(image.getWidth(), image.getHeight(), histograms.getContentHash());
+            keysByImage.put(image, key);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+        } else {
+            histograms = HistogramSet.compute(image);
+            key = new Object();
+            keysByImage.put(image, key);
+        }
+
+        misses++;
+        Entry entry = new Entry(histograms);
+        entries.put(key, entry);
+        usedBytes += entry.getSizeInBytes();
+        evict();
+        return entry;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        keysByImage.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Вытесняем самые старые записи, но последнюю добавленную оставляем всегда
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedBytes > budgetBytes && entries.size() > 1) {
+            usedBytes -= iterator.next().getSizeInBytes();
+            iterator.remove();
+        }
+    }
+}
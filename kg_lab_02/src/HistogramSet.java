@@ -0,0 +1,169 @@
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+// Гистограммы R, G, B и яркости вместе с суммами для среднего и дисперсии,
+// собранные за один проход по растру
+public class HistogramSet {
+
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+    public static final int LUMINANCE = 3;
+
+    // Вклады каналов в яркость Y = 0.299*R + 0.587*G + 0.114*B. Сумма табличных
+    // значений вычисляется в том же порядке, что и формула, поэтому результат совпадает
+    private static final double[] LUMA_RED = new double[256];
+    private static final double[] LUMA_GREEN = new double[256];
+    private static final double[] LUMA_BLUE = new double[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            LUMA_RED[i] = 0.299 * i;
+            LUMA_GREEN[i] = 0.587 * i;
+            LUMA_BLUE[i] = 0.114 * i;
+        }
+    }
+
+    private final int[][] histograms = new int[4][256];
+    private final long[] sums = new long[4];
+    private final long[] sumsOfSquares = new long[4];
+    private long pixelCount;
+    private long contentHash;
+
+    public static HistogramSet compute(BufferedImage image) {
+        return compute(image, null);
+    }
+
+    // То же, что compute, но в том же проходе по растру считается и 64-битный хэш FNV-1a
+    // содержимого (getContentHash) — для кэшей, которые ищут результат по пикселям.
+    // Хэш зависит от порядка пикселей, поэтому проход последовательный
+    public static HistogramSet computeWithContentHash(BufferedImage image) {
+        int[] pixels = RasterAccess.readPackedRGB(image);
+        HistogramSet result = new HistogramSet();
+        result.scanWithHash(pixels, 0, pixels.length);
+        result.computeMoments();
+        return result;
+    }
+
+    public static HistogramSet compute(BufferedImage image, ForkJoinPool pool) {
+        int[] pixels = RasterAccess.readPackedRGB(image, pool);
+        HistogramSet result = ParallelRows.reduce(pool, image.getWidth(), image.getHeight(), new ParallelRows.RangeReduction<HistogramSet>() {
+            public HistogramSet newPartial() {
+                return new HistogramSet();
+            }
+
+            public void accumulate(HistogramSet partial, int from, int to) {
+                partial.scan(pixels, from, to);
+            }
+
+            public void merge(HistogramSet target, HistogramSet partial) {
+                target.add(partial);
+            }
+        });
+        result.computeMoments();
+        return result;
+    }
+
+    private void scan(int[] pixels, int from, int to) {
+        int[] red = histograms[RED];
+        int[] green = histograms[GREEN];
+        int[] blue = histograms[BLUE];
+        int[] luminance = histograms[LUMINANCE];
+
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i];
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+
+            red[r]++;
+            green[g]++;
+            blue[b]++;
+            luminance[(int) (LUMA_RED[r] + LUMA_GREEN[g] + LUMA_BLUE[b])]++;
+        }
+        pixelCount += to - from;
+    }
+
+    private void scanWithHash(int[] pixels, int from, int to) {
+        int[] red = histograms[RED];
+        int[] green = histograms[GREEN];
+        int[] blue = histograms[BLUE];
+        int[] luminance = histograms[LUMINANCE];
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i];
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+
+            red[r]++;
+            green[g]++;
+            blue[b]++;
+            luminance[(int) (LUMA_RED[r] + LUMA_GREEN[g] + LUMA_BLUE[b])]++;
+            hash = (hash ^ (rgb & 0xFFFFFF)) * 0x100000001b3L;
+        }
+        pixelCount += to - from;
+        contentHash = hash;
+    }
+
+    // Суммы значений и их квадратов по 256 корзинам дают те же моменты, что и по пикселям
+    private void computeMoments() {
+        for (int channel = 0; channel < 4; channel++) {
+            long sum = 0, sumOfSquares = 0;
+            int[] histogram = histograms[channel];
+            for (int v = 0; v < 256; v++) {
+                sum += (long) v * histogram[v];
+                sumOfSquares += (long) v * v * histogram[v];
+            }
+            sums[channel] = sum;
+            sumsOfSquares[channel] = sumOfSquares;
+        }
+    }
+
+    private void add(HistogramSet other) {
+        for (int channel = 0; channel < 4; channel++) {
+            for (int v = 0; v < 256; v++) {
+                histograms[channel][v] += other.histograms[channel][v];
+            }
+        }
+        pixelCount += other.pixelCount;
+    }
+
+    public int[] getHistogram(int channel) {
+        return histograms[channel];
+    }
+
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    // Хэш пикселей без альфа-канала; 0, если набор посчитан без computeWithContentHash
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public double getMean(int channel) {
+        return pixelCount > 0 ? (double) sums[channel] / pixelCount : 0;
+    }
+
+    public double getStd(int channel) {
+        if (pixelCount == 0) {
+            return 0;
+        }
+        double mean = getMean(channel);
+        double variance = (double) sumsOfSquares[channel] / pixelCount - mean * mean;
+        return Math.sqrt(Math.max(0, variance));
+    }
+
+    // Наибольшее значение среди всех четырёх гистограмм — для общей нормировки графика
+    public int getMaxCount() {
+        int max = 0;
+        for (int[] histogram : histograms) {
+            for (int value : histogram) {
+                if (value > max) max = value;
+            }
+        }
+        return max;
+    }
+}
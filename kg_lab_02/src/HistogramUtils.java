@@ -5,6 +5,10 @@ public class HistogramUtils {
     
     // Комбинированная RGB гистограмма + яркость
     public static BufferedImage createCombinedHistogramImage(BufferedImage image) {
+        return createCombinedHistogramImage(HistogramSet.compute(image));
+    }
+    
+    public static BufferedImage createCombinedHistogramImage(HistogramSet histograms) {
         int width = 600;
         int height = 400;
         BufferedImage histImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
@@ -16,17 +20,14 @@ public class HistogramUtils {
         g.setColor(Color.WHITE);
         g.fillRect(0, 0, width, height);
         
-        // Вычисляем гистограммы для каждого канала и яркости
-        int[] histRed = calculateChannelHistogram(image, 'R');
-        int[] histGreen = calculateChannelHistogram(image, 'G');
-        int[] histBlue = calculateChannelHistogram(image, 'B');
-        int[] histLuminance = calculateLuminanceHistogram(image);
+        // Гистограммы каждого канала и яркости уже посчитаны за один проход
+        int[] histRed = histograms.getHistogram(HistogramSet.RED);
+        int[] histGreen = histograms.getHistogram(HistogramSet.GREEN);
+        int[] histBlue = histograms.getHistogram(HistogramSet.BLUE);
+        int[] histLuminance = histograms.getHistogram(HistogramSet.LUMINANCE);
         
         // Находим максимум для нормализации
-        int max = Math.max(Math.max(
-            Math.max(findMax(histRed), findMax(histGreen)),
-            Math.max(findMax(histBlue), findMax(histLuminance))
-        ), 1);
+        int max = Math.max(histograms.getMaxCount(), 1);
         
         // Рисуем фон
         g.setColor(new Color(245, 245, 245));
@@ -65,82 +66,41 @@ public class HistogramUtils {
     
     // Отдельные гистограммы для каждого канала
     public static BufferedImage createRedHistogramImage(BufferedImage image) {
-        int[] histogram = calculateChannelHistogram(image, 'R');
-        return createSingleChannelHistogram(histogram, "Red Channel", Color.RED);
+        return createRedHistogramImage(HistogramSet.compute(image));
     }
     
     public static BufferedImage createGreenHistogramImage(BufferedImage image) {
-        int[] histogram = calculateChannelHistogram(image, 'G');
-        return createSingleChannelHistogram(histogram, "Green Channel", Color.GREEN);
+        return createGreenHistogramImage(HistogramSet.compute(image));
     }
     
     public static BufferedImage createBlueHistogramImage(BufferedImage image) {
-        int[] histogram = calculateChannelHistogram(image, 'B');
-        return createSingleChannelHistogram(histogram, "Blue Channel", Color.BLUE);
+        return createBlueHistogramImage(HistogramSet.compute(image));
     }
     
-    // Гистограмма яркости
-    public static BufferedImage createLuminanceHistogramImage(BufferedImage image) {
-        int[] histogram = calculateLuminanceHistogram(image);
-        return createSingleChannelHistogram(histogram, "Luminance (Brightness)", Color.BLACK);
+    public static BufferedImage createRedHistogramImage(HistogramSet histograms) {
+        return createSingleChannelHistogram(histograms, HistogramSet.RED, "Red Channel", Color.RED);
     }
     
-    // Вычисляет гистограмму яркости (luminance)
-    private static int[] calculateLuminanceHistogram(BufferedImage image) {
-        int[] histogram = new int[256];
-        int width = image.getWidth();
-        int height = image.getHeight();
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                // Формула для вычисления яркости (luminance)
-                // Стандартная формула: Y = 0.299*R + 0.587*G + 0.114*B
-                int luminance = (int)(0.299 * r + 0.587 * g + 0.114 * b);
-                
-                histogram[luminance]++;
-            }
-        }
-        
-        return histogram;
+    public static BufferedImage createGreenHistogramImage(HistogramSet histograms) {
+        return createSingleChannelHistogram(histograms, HistogramSet.GREEN, "Green Channel", Color.GREEN);
     }
     
-    // Вычисляет гистограмму для указанного канала
-    private static int[] calculateChannelHistogram(BufferedImage image, char channel) {
-        int[] histogram = new int[256];
-        int width = image.getWidth();
-        int height = image.getHeight();
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                int value = 0;
-                
-                switch (channel) {
-                    case 'R': // Красный канал
-                        value = (rgb >> 16) & 0xFF;
-                        break;
-                    case 'G': // Зеленый канал
-                        value = (rgb >> 8) & 0xFF;
-                        break;
-                    case 'B': // Синий канал
-                        value = rgb & 0xFF;
-                        break;
-                }
-                
-                histogram[value]++;
-            }
-        }
-        
-        return histogram;
+    public static BufferedImage createBlueHistogramImage(HistogramSet histograms) {
+        return createSingleChannelHistogram(histograms, HistogramSet.BLUE, "Blue Channel", Color.BLUE);
+    }
+    
+    // Гистограмма яркости
+    public static BufferedImage createLuminanceHistogramImage(BufferedImage image) {
+        return createLuminanceHistogramImage(HistogramSet.compute(image));
+    }
+    
+    public static BufferedImage createLuminanceHistogramImage(HistogramSet histograms) {
+        return createSingleChannelHistogram(histograms, HistogramSet.LUMINANCE, "Luminance (Brightness)", Color.BLACK);
     }
     
     // Создает изображение гистограммы для одного канала
-    private static BufferedImage createSingleChannelHistogram(int[] histogram, String channelName, Color color) {
+    private static BufferedImage createSingleChannelHistogram(HistogramSet histograms, int channel, String channelName, Color color) {
+        int[] histogram = histograms.getHistogram(channel);
         int width = 400;
         int height = 300;
         BufferedImage histImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
@@ -156,7 +116,7 @@ public class HistogramUtils {
         drawSingleHistogram(g, histogram, 30, 40, width - 60, height - 80, color, channelName);
         
         // Статистика
-        drawChannelStatistics(g, histogram, width, height, channelName);
+        drawChannelStatistics(g, histogram, histograms.getMean(channel), histograms.getStd(channel), width, height, channelName);
         
         g.dispose();
         return histImage;
@@ -307,9 +267,8 @@ public class HistogramUtils {
         g.drawString("Luminance", legendX + 40, legendY + 65);
     }
     
-    private static void drawChannelStatistics(Graphics2D g, int[] histogram, int width, int height, String channelName) {
-        double mean = calculateMean(histogram);
-        double std = calculateStd(histogram, mean);
+    private static void drawChannelStatistics(Graphics2D g, int[] histogram, double mean, double std,
+                                              int width, int height, String channelName) {
         int mode = findMode(histogram);
         int median = findMedian(histogram);
         
@@ -363,20 +322,19 @@ public class HistogramUtils {
     }
     
     public static String getImageStatistics(BufferedImage image) {
-        int[] histRed = calculateChannelHistogram(image, 'R');
-        int[] histGreen = calculateChannelHistogram(image, 'G');
-        int[] histBlue = calculateChannelHistogram(image, 'B');
-        int[] histLuminance = calculateLuminanceHistogram(image);
-        
-        double meanRed = calculateMean(histRed);
-        double meanGreen = calculateMean(histGreen);
-        double meanBlue = calculateMean(histBlue);
-        double meanLuminance = calculateMean(histLuminance);
+        return getImageStatistics(HistogramSet.compute(image));
+    }
+    
+    public static String getImageStatistics(HistogramSet histograms) {
+        double meanRed = histograms.getMean(HistogramSet.RED);
+        double meanGreen = histograms.getMean(HistogramSet.GREEN);
+        double meanBlue = histograms.getMean(HistogramSet.BLUE);
+        double meanLuminance = histograms.getMean(HistogramSet.LUMINANCE);
         
-        double stdRed = calculateStd(histRed, meanRed);
-        double stdGreen = calculateStd(histGreen, meanGreen);
-        double stdBlue = calculateStd(histBlue, meanBlue);
-        double stdLuminance = calculateStd(histLuminance, meanLuminance);
+        double stdRed = histograms.getStd(HistogramSet.RED);
+        double stdGreen = histograms.getStd(HistogramSet.GREEN);
+        double stdBlue = histograms.getStd(HistogramSet.BLUE);
+        double stdLuminance = histograms.getStd(HistogramSet.LUMINANCE);
         
         return String.format(
             "RGB + Luminance Statistics:\n" +
@@ -387,25 +345,4 @@ public class HistogramUtils {
             meanRed, stdRed, meanGreen, stdGreen, meanBlue, stdBlue, meanLuminance, stdLuminance
         );
     }
-    
-    private static double calculateMean(int[] histogram) {
-        long sum = 0;
-        long count = 0;
-        for (int i = 0; i < histogram.length; i++) {
-            sum += i * histogram[i];
-            count += histogram[i];
-        }
-        return count > 0 ? (double) sum / count : 0;
-    }
-    
-    private static double calculateStd(int[] histogram, double mean) {
-        double sumSq = 0;
-        long count = 0;
-        for (int i = 0; i < histogram.length; i++) {
-            double diff = i - mean;
-            sumSq += diff * diff * histogram[i];
-            count += histogram[i];
-        }
-        return count > 0 ? Math.sqrt(sumSq / count) : 0;
-    }
 }
\ No newline at end of file
@@ -3,6 +3,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ImageContrastApp extends JFrame {
     private JLabel originalImageLabel;
@@ -13,12 +18,37 @@ public class ImageContrastApp extends JFrame {
     private JLabel resultRedHistLabel, resultGreenHistLabel, resultBlueHistLabel, resultLuminanceHistLabel;
     private JTabbedPane tabbedPane;
     private BufferedImage originalImage;
+    private PreviewScaler.MipPyramid originalPyramid;
     private JComboBox<String> methodComboBox;
     private JComboBox<String> colorSpaceComboBox;
     private JComboBox<String> segmentationComboBox;
     private JSlider thresholdSlider;
     private JPanel segmentationPanel;
     private ImageProcessor imageProcessor;
+    // Гистограммы и графики по изображениям; бюджет в мегабайтах задаётся свойством kg.histogramCacheMb
+    private final HistogramCache histogramCache =
+        new HistogramCache(Long.getLong("kg.histogramCacheMb", 64) * 1024 * 1024, true);
+    // Отклики детекторов сегментации: смена только порога не пересчитывает свёртки
+    private final ResponseCache responseCache = new ResponseCache();
+    // Загрузка, обработка и сохранение идут вне EDT в одном фоновом потоке; новая задача
+    // обработки отменяет текущую
+    private final ExecutorService processingExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "image-processing");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ProcessingTask currentTask;
+    private LoadTask currentLoad;
+    private JProgressBar progressBar;
+    // Режим предпросмотра: смена параметров сразу обрабатывает уменьшенную копию,
+    // полное разрешение — только по кнопке «Обработать»
+    private JCheckBox previewCheckBox;
+    private PreviewRenderer previewRenderer;
+    // Последний результат контрастирования в полном разрешении: если изменились только
+    // детектор или порог, сегментация берёт его и закэшированную для него карту откликов
+    private BufferedImage lastProcessedSource;
+    private String lastProcessedKey;
+    private BufferedImage lastProcessedImage;
     
     public ImageContrastApp() {
         imageProcessor = new ImageProcessor();
@@ -67,13 +97,26 @@ public class ImageContrastApp extends JFrame {
             "Обнаружение линий", 
             "Обнаружение перепадов яркости"
         });
-        segmentationComboBox.addActionListener(e -> updateSegmentationControls());
+        segmentationComboBox.addActionListener(e -> {
+            updateSegmentationControls();
+            onParametersChanged(false);
+        });
         
         JButton processButton = new JButton("Обработать");
         processButton.addActionListener(e -> processImage());
         
         JButton resetButton = new JButton("Сброс");
         resetButton.addActionListener(e -> resetImages());
+
+        methodComboBox.addActionListener(e -> onParametersChanged(false));
+        colorSpaceComboBox.addActionListener(e -> onParametersChanged(false));
+
+        previewCheckBox = new JCheckBox("Предпросмотр", true);
+        previewCheckBox.addActionListener(e -> onParametersChanged(false));
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
         
         panel.add(loadButton);
         panel.add(new JLabel("Метод контрастирования:"));
@@ -82,8 +125,10 @@ public class ImageContrastApp extends JFrame {
         panel.add(colorSpaceComboBox);
         panel.add(new JLabel("Сегментация:"));
         panel.add(segmentationComboBox);
+        panel.add(previewCheckBox);
         panel.add(processButton);
         panel.add(resetButton);
+        panel.add(progressBar);
         
         return panel;
     }
@@ -98,6 +143,7 @@ public class ImageContrastApp extends JFrame {
         thresholdSlider.setPaintTicks(true);
         thresholdSlider.setPaintLabels(true);
         thresholdSlider.setMajorTickSpacing(50);
+        thresholdSlider.addChangeListener(e -> onParametersChanged(thresholdSlider.getValueIsAdjusting()));
                 
         // Добавляем компоненты в панель
         panel.add(new JLabel("Порог:"));
@@ -229,44 +275,32 @@ public class ImageContrastApp extends JFrame {
         int result = fileChooser.showOpenDialog(this);
         
         if (result == JFileChooser.APPROVE_OPTION) {
-            try {
-                originalImage = ImageUtils.loadImage(fileChooser.getSelectedFile().getPath());
-                displayOriginalImage();
-                
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Ошибка загрузки изображения: " + e.getMessage());
+            // Задачи для прежнего изображения больше не нужны
+            if (currentTask != null) {
+                currentTask.cancel(false);
+                currentTask = null;
             }
+            if (currentLoad != null) {
+                currentLoad.cancel(false);
+            }
+            currentLoad = new LoadTask(fileChooser.getSelectedFile().getPath());
+            processingExecutor.execute(currentLoad);
         }
     }
     
-    private void displayOriginalImage() {
-        if (originalImage != null) {
-            ImageIcon icon = new ImageIcon(ImageUtils.scaleImage(originalImage, 600, 400));
-            originalImageLabel.setIcon(icon);
-
-            BufferedImage combinedHist = HistogramUtils.createCombinedHistogramImage(originalImage);
-            originalHistogramLabel.setIcon(new ImageIcon(combinedHist));
-            
-            displayChannelHistograms(originalImage, true);
-        }
-    }
-    
-    private void displayChannelHistograms(BufferedImage image, boolean isOriginal) {
-        BufferedImage redHist = HistogramUtils.createRedHistogramImage(image);
-        BufferedImage greenHist = HistogramUtils.createGreenHistogramImage(image);
-        BufferedImage blueHist = HistogramUtils.createBlueHistogramImage(image);
-        BufferedImage luminanceHist = HistogramUtils.createLuminanceHistogramImage(image);
-        
+    private void displayHistograms(HistogramCache.Entry charts, boolean isOriginal) {
         if (isOriginal) {
-            if (originalRedHistLabel != null) originalRedHistLabel.setIcon(new ImageIcon(redHist));
-            if (originalGreenHistLabel != null) originalGreenHistLabel.setIcon(new ImageIcon(greenHist));
-            if (originalBlueHistLabel != null) originalBlueHistLabel.setIcon(new ImageIcon(blueHist));
-            if (originalLuminanceHistLabel != null) originalLuminanceHistLabel.setIcon(new ImageIcon(luminanceHist));
+            originalHistogramLabel.setIcon(new ImageIcon(charts.getCombinedChart()));
+            if (originalRedHistLabel != null) originalRedHistLabel.setIcon(new ImageIcon(charts.getRedChart()));
+            if (originalGreenHistLabel != null) originalGreenHistLabel.setIcon(new ImageIcon(charts.getGreenChart()));
+            if (originalBlueHistLabel != null) originalBlueHistLabel.setIcon(new ImageIcon(charts.getBlueChart()));
+            if (originalLuminanceHistLabel != null) originalLuminanceHistLabel.setIcon(new ImageIcon(charts.getLuminanceChart()));
         } else {
-            if (resultRedHistLabel != null) resultRedHistLabel.setIcon(new ImageIcon(redHist));
-            if (resultGreenHistLabel != null) resultGreenHistLabel.setIcon(new ImageIcon(greenHist));
-            if (resultBlueHistLabel != null) resultBlueHistLabel.setIcon(new ImageIcon(blueHist));
-            if (resultLuminanceHistLabel != null) resultLuminanceHistLabel.setIcon(new ImageIcon(luminanceHist));
+            resultHistogramLabel.setIcon(new ImageIcon(charts.getCombinedChart()));
+            if (resultRedHistLabel != null) resultRedHistLabel.setIcon(new ImageIcon(charts.getRedChart()));
+            if (resultGreenHistLabel != null) resultGreenHistLabel.setIcon(new ImageIcon(charts.getGreenChart()));
+            if (resultBlueHistLabel != null) resultBlueHistLabel.setIcon(new ImageIcon(charts.getBlueChart()));
+            if (resultLuminanceHistLabel != null) resultLuminanceHistLabel.setIcon(new ImageIcon(charts.getLuminanceChart()));
         }
     }
     
@@ -275,53 +309,236 @@ public class ImageContrastApp extends JFrame {
             JOptionPane.showMessageDialog(this, "Сначала загрузите изображение");
             return;
         }
-        
+        startTask(false);
+    }
+
+    private void requestPreview() {
+        if (originalImage != null && previewCheckBox.isSelected()) {
+            startTask(true);
+        }
+    }
+
+    // Смена параметров во время полной обработки перезапускает её с новыми значениями
+    // (для слайдера — когда его отпустили); в остальных случаях обновляется предпросмотр
+    private void onParametersChanged(boolean adjusting) {
+        if (currentTask != null && !currentTask.isDone() && !currentTask.preview) {
+            if (!adjusting) {
+                startTask(false);
+            }
+        } else {
+            requestPreview();
+        }
+    }
+
+    private void startTask(boolean preview) {
+        // Параметры считываются здесь, на EDT: фоновая задача не обращается к компонентам
         String method = (String) methodComboBox.getSelectedItem();
         String colorSpace = (String) colorSpaceComboBox.getSelectedItem();
         String segmentation = (String) segmentationComboBox.getSelectedItem();
-        
-        try {
-            BufferedImage resultImage = imageProcessor.processImage(
-                originalImage, method, colorSpace);
-            
-            if (!segmentation.equals("Без сегментации")) {
-                resultImage = applySegmentation(resultImage, segmentation);
+        int threshold = thresholdSlider.getValue();
+
+        if (currentTask != null) {
+            currentTask.cancel(false);
+        }
+        currentTask = new ProcessingTask(originalImage, originalPyramid, preview, method, colorSpace, segmentation, threshold);
+        if (preview) {
+            progressBar.setVisible(false);
+        } else {
+            currentTask.addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName()) && e.getSource() == currentTask) {
+                    progressBar.setValue((Integer) e.getNewValue());
+                }
+            });
+            progressBar.setValue(0);
+            progressBar.setVisible(true);
+        }
+        processingExecutor.execute(currentTask);
+    }
+
+    // Уменьшенная копия и таблицы контрастирования создаются один раз на изображение, в фоновом потоке
+    private synchronized PreviewRenderer previewRendererFor(BufferedImage source, PreviewScaler.MipPyramid pyramid) {
+        if (previewRenderer == null || previewRenderer.getOriginal() != source) {
+            previewRenderer = new PreviewRenderer(imageProcessor, responseCache, source, pyramid, 600, 400);
+        }
+        return previewRenderer;
+    }
+
+    private BufferedImage processedImage(BufferedImage source, String method, String colorSpace) {
+        String key = method + "|" + colorSpace;
+        synchronized (this) {
+            if (source == lastProcessedSource && key.equals(lastProcessedKey)) {
+                return lastProcessedImage;
             }
+        }
 
-            saveResultImage(resultImage);
-            
-            ImageIcon resultIcon = new ImageIcon(ImageUtils.scaleImage(resultImage, 600, 400));
-            resultImageLabel.setIcon(resultIcon);
-            
-            BufferedImage resultCombinedHist = HistogramUtils.createCombinedHistogramImage(resultImage);
-            resultHistogramLabel.setIcon(new ImageIcon(resultCombinedHist));
-            
-            displayChannelHistograms(resultImage, false);
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Ошибка обработки изображения: " + e.getMessage());
-            e.printStackTrace();
+        BufferedImage image = imageProcessor.processImage(source, method, colorSpace);
+        synchronized (this) {
+            lastProcessedSource = source;
+            lastProcessedKey = key;
+            lastProcessedImage = image;
         }
+        return image;
+    }
 
+    // Результат фоновой обработки: само изображение (null для предпросмотра), его уменьшенная копия и гистограммы
+    private static class ProcessingResult {
+        final BufferedImage image;
+        final ImageIcon preview;
+        final HistogramCache.Entry histograms;
+
+        ProcessingResult(BufferedImage image, ImageIcon preview, HistogramCache.Entry histograms) {
+            this.image = image;
+            this.preview = preview;
+            this.histograms = histograms;
+        }
     }
-    
-    private BufferedImage applySegmentation(BufferedImage image, String segmentationType) {
-        switch (segmentationType) {
-            case "Обнаружение точек":
-                return SegmentationUtils.detectPoints(image, thresholdSlider.getValue());
-                
-            case "Обнаружение линий":
-                return SegmentationUtils.detectLines(image, thresholdSlider.getValue());
-                
-            case "Обнаружение перепадов яркости":
-                return SegmentationUtils.detectEdges(image, thresholdSlider.getValue());
-                
-            default:
-                return image;
+
+    // Загруженное изображение с пирамидой уровней, уменьшенной копией и гистограммами
+    private static class LoadResult {
+        final BufferedImage image;
+        final PreviewScaler.MipPyramid pyramid;
+        final ImageIcon preview;
+        final HistogramCache.Entry histograms;
+
+        LoadResult(BufferedImage image, PreviewScaler.MipPyramid pyramid, ImageIcon preview, HistogramCache.Entry histograms) {
+            this.image = image;
+            this.pyramid = pyramid;
+            this.preview = preview;
+            this.histograms = histograms;
+        }
+    }
+
+    // Декодирование, пирамида уровней и гистограммы исходного изображения — в фоновом потоке
+    // обработки; на EDT в done() только устанавливаются готовые значки
+    private class LoadTask extends SwingWorker<LoadResult, Void> {
+        private final String path;
+
+        LoadTask(String path) {
+            this.path = path;
+        }
+
+        @Override
+        protected LoadResult doInBackground() throws Exception {
+            BufferedImage image = ImageUtils.loadImage(path);
+            if (image == null) {
+                throw new IOException("Неизвестный формат изображения: " + path);
+            }
+            if (isCancelled()) return null;
+            PreviewScaler.MipPyramid pyramid = new PreviewScaler.MipPyramid(image);
+            ImageIcon preview = new ImageIcon(ImageUtils.scaleImage(pyramid, 600, 400));
+            if (isCancelled()) return null;
+            return new LoadResult(image, pyramid, preview, histogramCache.get(image));
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || this != currentLoad) {
+                return;
+            }
+            currentLoad = null;
+
+            try {
+                LoadResult result = get();
+                originalImage = result.image;
+                originalPyramid = result.pyramid;
+                originalImageLabel.setIcon(result.preview);
+                displayHistograms(result.histograms, true);
+                requestPreview();
+            } catch (CancellationException e) {
+                // Загрузка заменена более новой
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                JOptionPane.showMessageDialog(ImageContrastApp.this, "Ошибка загрузки изображения: " + cause.getMessage());
+            }
+        }
+    }
+
+    // Вся тяжёлая работа — контрастирование, сегментация, гистограммы и масштабирование —
+    // выполняется в doInBackground; отмена проверяется между этапами, а в done()
+    // результат показывается только если задача не отменена и не заменена новой.
+    // В режиме предпросмотра то же делает PreviewRenderer на уменьшенной копии.
+    private class ProcessingTask extends SwingWorker<ProcessingResult, Void> {
+        private final BufferedImage source;
+        private final PreviewScaler.MipPyramid pyramid;
+        private final boolean preview;
+        private final String method;
+        private final String colorSpace;
+        private final String segmentation;
+        private final int threshold;
+
+        ProcessingTask(BufferedImage source, PreviewScaler.MipPyramid pyramid, boolean preview,
+                       String method, String colorSpace, String segmentation, int threshold) {
+            this.source = source;
+            this.pyramid = pyramid;
+            this.preview = preview;
+            this.method = method;
+            this.colorSpace = colorSpace;
+            this.segmentation = segmentation;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected ProcessingResult doInBackground() {
+            if (preview) {
+                PreviewRenderer.Result result = previewRendererFor(source, pyramid)
+                    .render(method, colorSpace, segmentation, threshold);
+                return new ProcessingResult(null, new ImageIcon(result.getImage()),
+                    new HistogramCache.Entry(result.getHistograms()));
+            }
+
+            BufferedImage resultImage = processedImage(source, method, colorSpace);
+            if (isCancelled()) return null;
+            setProgress(40);
+
+            resultImage = responseCache.segment(resultImage, segmentation, threshold);
+            if (isCancelled()) return null;
+            setProgress(70);
+
+            HistogramCache.Entry histograms = histogramCache.get(resultImage);
+            if (isCancelled()) return null;
+            setProgress(90);
+
+            ImageIcon preview = new ImageIcon(ImageUtils.scaleImage(resultImage, 600, 400));
+            setProgress(100);
+            return new ProcessingResult(resultImage, preview, histograms);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || this != currentTask) {
+                return;
+            }
+            progressBar.setVisible(false);
+
+            try {
+                ProcessingResult result = get();
+                resultImageLabel.setText(preview ? "Предпросмотр" : "Результат обработки");
+                resultImageLabel.setIcon(result.preview);
+                displayHistograms(result.histograms, false);
+                if (!preview) {
+                    saveResultImage(result.image);
+                }
+            } catch (CancellationException e) {
+                // Задача заменена более новой
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                JOptionPane.showMessageDialog(ImageContrastApp.this, "Ошибка обработки изображения: " + cause.getMessage());
+                cause.printStackTrace();
+            }
         }
     }
     
     private void resetImages() {
+        if (currentTask != null) {
+            currentTask.cancel(false);
+            currentTask = null;
+        }
+        if (currentLoad != null) {
+            currentLoad.cancel(false);
+            currentLoad = null;
+        }
+        progressBar.setVisible(false);
+
         originalImageLabel.setIcon(null);
         resultImageLabel.setIcon(null);
         originalHistogramLabel.setIcon(null);
@@ -338,6 +555,13 @@ public class ImageContrastApp extends JFrame {
         if (resultLuminanceHistLabel != null) resultLuminanceHistLabel.setIcon(null);
         
         originalImage = null;
+        originalPyramid = null;
+        synchronized (this) {
+            previewRenderer = null;
+            lastProcessedSource = null;
+            lastProcessedKey = null;
+            lastProcessedImage = null;
+        }
     }
 
     private void saveResultImage(BufferedImage image) {
@@ -354,25 +578,41 @@ public class ImageContrastApp extends JFrame {
         int userSelection = fileChooser.showSaveDialog(this);
         
         if (userSelection == JFileChooser.APPROVE_OPTION) {
+            File fileToSave = new File(fileChooser.getSelectedFile().getAbsolutePath() + ".png");
+            processingExecutor.execute(new SaveTask(image, fileToSave));
+        }
+    }
+
+    // Кодирование PNG в полном разрешении занимает секунды, поэтому идёт в фоновом потоке
+    // обработки; на EDT остаются только диалог выбора файла и сообщение о результате
+    private class SaveTask extends SwingWorker<Boolean, Void> {
+        private final BufferedImage image;
+        private final File file;
+
+        SaveTask(BufferedImage image, File file) {
+            this.image = image;
+            this.file = file;
+        }
+
+        @Override
+        protected Boolean doInBackground() throws Exception {
+            return ImageIO.write(image, "png", file);
+        }
+
+        @Override
+        protected void done() {
             try {
-                File fileToSave = fileChooser.getSelectedFile();
-                String filePath = fileToSave.getAbsolutePath() + ".png";
-                fileToSave = new File(filePath);
-                
-                // Сохраняем изображение
-                boolean success = ImageIO.write(image, "png", fileToSave);
-                
-                if (success) {
-                    JOptionPane.showMessageDialog(this, 
-                        "Изображение успешно сохранено:\n" + filePath);
+                if (get()) {
+                    JOptionPane.showMessageDialog(ImageContrastApp.this,
+                        "Изображение успешно сохранено:\n" + file.getPath());
                 } else {
-                    JOptionPane.showMessageDialog(this, 
+                    JOptionPane.showMessageDialog(ImageContrastApp.this,
                         "Ошибка: не удалось сохранить изображение в формате .png");
                 }
-                
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, 
-                    "Ошибка при сохранении изображения: " + e.getMessage());
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                JOptionPane.showMessageDialog(ImageContrastApp.this,
+                    "Ошибка при сохранении изображения: " + cause.getMessage());
             }
         }
     }
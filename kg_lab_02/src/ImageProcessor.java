@@ -1,194 +1,315 @@
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
 
-public class ImageProcessor {
-    
+public class ImageProcessor implements AutoCloseable {
+
+    // Корзина гистограммы V для каждого максимального канала: (int) (max / 255f * 255),
+    // как в исходной формуле через float, чтобы результат совпадал побитово
+    private static final int[] VALUE_BINS = new int[256];
+
+    static {
+        for (int max = 0; max < 256; max++) {
+            VALUE_BINS[max] = (int) ((max / 255.0f) * 255);
+        }
+    }
+
+    // Число потоков обработки; 1 — последовательный режим без пула. Собственный пул
+    // освобождается в close()
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public ImageProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ImageProcessor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Степень параллелизма должна быть положительной: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Останавливает потоки пула; после закрытия параллельный процессор использовать нельзя
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // Преобразование пикселей, построенное по статистике одного изображения (min/max или
+    // гистограммам). Его можно применить к любому другому изображению — например, к уменьшенной
+    // копии для предпросмотра или к полосам при потоковой обработке, — и результат будет тем же,
+    // что и при обработке исходного изображения целиком.
+    public interface Transform {
+        void apply(int[] source, int[] target, int from, int to);
+    }
+
+    // Пиксели распаковываются один раз и служат и для статистики, и для применения таблицы
     public BufferedImage processImage(BufferedImage image, String method, String colorSpace) {
+        int[] source = RasterAccess.readPackedRGB(image, pool);
+        Transform transform = prepareTransform(source, image.getWidth(), image.getHeight(), method, colorSpace);
+        return transform != null ? apply(source, image.getWidth(), image.getHeight(), transform) : image;
+    }
+
+    // Статистика по изображению и таблица преобразования; null — изображение не меняется
+    public Transform prepareTransform(BufferedImage image, String method, String colorSpace) {
+        int[] source = RasterAccess.readPackedRGB(image, pool);
+        return prepareTransform(source, image.getWidth(), image.getHeight(), method, colorSpace);
+    }
+
+    public BufferedImage applyTransform(BufferedImage image, Transform transform) {
+        return apply(RasterAccess.readPackedRGB(image, pool), image.getWidth(), image.getHeight(), transform);
+    }
+
+    public BufferedImage applyLinearContrast(BufferedImage image) {
+        int[] source = RasterAccess.readPackedRGB(image, pool);
+        return apply(source, image.getWidth(), image.getHeight(), linearContrast(source, image.getWidth(), image.getHeight()));
+    }
+
+    public BufferedImage applyHistogramEqualizationRGB(BufferedImage image) {
+        int[] source = RasterAccess.readPackedRGB(image, pool);
+        return apply(source, image.getWidth(), image.getHeight(), equalizationRGB(source, image.getWidth(), image.getHeight()));
+    }
+
+    // Два прохода без промежуточных кадров: гистограмма яркости V (она зависит только от
+    // максимального канала) и применение таблицы новых значений V с пересчётом в RGB
+    public BufferedImage applyHistogramEqualizationHSV(BufferedImage image) {
+        int[] source = RasterAccess.readPackedRGB(image, pool);
+        return apply(source, image.getWidth(), image.getHeight(), equalizationHSV(source, image.getWidth(), image.getHeight()));
+    }
+
+    private Transform prepareTransform(int[] source, int width, int height, String method, String colorSpace) {
         if (method.equals("Линейное контрастирование")) {
-            return applyLinearContrast(image);
+            return linearContrast(source, width, height);
         } else {
             switch (colorSpace) {
                 case "RGB":
-                    return applyHistogramEqualizationRGB(image);
+                    return equalizationRGB(source, width, height);
                 case "HSV":
-                    return applyHistogramEqualizationHSV(image);
+                    return equalizationHSV(source, width, height);
                 default:
-                    return image;
+                    return null;
             }
         }
     }
-    
-    public BufferedImage applyLinearContrast(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        
-        int minRed = 255, maxRed = 0;
-        int minGreen = 255, maxGreen = 0;
-        int minBlue = 255, maxBlue = 0;
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                minRed = Math.min(minRed, r);
-                maxRed = Math.max(maxRed, r);
-                minGreen = Math.min(minGreen, g);
-                maxGreen = Math.max(maxGreen, g);
-                minBlue = Math.min(minBlue, b);
-                maxBlue = Math.max(maxBlue, b);
+
+    private BufferedImage apply(int[] source, int width, int height, Transform transform) {
+        BufferedImage result = RasterAccess.createRGBImage(width, height);
+        int[] target = RasterAccess.pixelsOf(result);
+        ParallelRows.forEach(pool, width, height, (from, to) -> transform.apply(source, target, from, to));
+        return result;
+    }
+
+    private Transform linearContrast(int[] source, int width, int height) {
+        int[] minMax = ParallelRows.reduce(pool, width, height, new ParallelRows.RangeReduction<int[]>() {
+            public int[] newPartial() {
+                return newMinMax();
             }
-        }
-        
-        if (maxRed == minRed) maxRed = minRed + 1;
-        if (maxGreen == minGreen) maxGreen = minGreen + 1;
-        if (maxBlue == minBlue) maxBlue = minBlue + 1;
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                int newR = (int) ((r - minRed) * 255.0 / (maxRed - minRed));
-                int newG = (int) ((g - minGreen) * 255.0 / (maxGreen - minGreen));
-                int newB = (int) ((b - minBlue) * 255.0 / (maxBlue - minBlue));
-                
-                newR = Math.max(0, Math.min(255, newR));
-                newG = Math.max(0, Math.min(255, newG));
-                newB = Math.max(0, Math.min(255, newB));
-                
-                int newRGB = (newR << 16) | (newG << 8) | newB;
-                result.setRGB(x, y, newRGB);
+
+            public void accumulate(int[] partial, int from, int to) {
+                scanMinMax(source, from, to, partial);
             }
-        }
-        
-        return result;
+
+            public void merge(int[] target, int[] partial) {
+                mergeMinMax(target, partial);
+            }
+        });
+
+        int[] lut = linearContrastLut(minMax);
+        return (src, dst, from, to) -> applyChannelLut(src, dst, from, to, lut);
     }
-    
-    public BufferedImage applyHistogramEqualizationRGB(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        
-        int[] histRed = new int[256];
-        int[] histGreen = new int[256];
-        int[] histBlue = new int[256];
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                histRed[(rgb >> 16) & 0xFF]++;
-                histGreen[(rgb >> 8) & 0xFF]++;
-                histBlue[rgb & 0xFF]++;
+
+    private Transform equalizationRGB(int[] source, int width, int height) {
+        int[] histograms = ParallelRows.reduce(pool, width, height, new ParallelRows.RangeReduction<int[]>() {
+            public int[] newPartial() {
+                return new int[768];
             }
-        }
-        
-        int totalPixels = width * height;
-        int[] cumRed = calculateCumulativeHistogram(histRed, totalPixels);
-        int[] cumGreen = calculateCumulativeHistogram(histGreen, totalPixels);
-        int[] cumBlue = calculateCumulativeHistogram(histBlue, totalPixels);
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                int newR = cumRed[r];
-                int newG = cumGreen[g];
-                int newB = cumBlue[b];
-                
-                int newRGB = (newR << 16) | (newG << 8) | newB;
-                result.setRGB(x, y, newRGB);
+
+            public void accumulate(int[] partial, int from, int to) {
+                scanChannelHistograms(source, from, to, partial);
             }
-        }
-        
-        return result;
+
+            public void merge(int[] target, int[] partial) {
+                mergeHistograms(target, partial);
+            }
+        });
+
+        int[] lut = equalizationLut(widen(histograms), (long) width * height);
+        return (src, dst, from, to) -> applyChannelLut(src, dst, from, to, lut);
     }
-    
-    public BufferedImage applyHistogramEqualizationHSV(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        
-        float[] values = new float[width * height];
-        int index = 0;
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                float[] hsv = ColorSpaceConverter.rgbToHSV(rgb);
-                values[index++] = hsv[2];
+
+    private Transform equalizationHSV(int[] source, int width, int height) {
+        int[] histogram = ParallelRows.reduce(pool, width, height, new ParallelRows.RangeReduction<int[]>() {
+            public int[] newPartial() {
+                return new int[256];
+            }
+
+            public void accumulate(int[] partial, int from, int to) {
+                scanValueHistogram(source, from, to, partial);
             }
+
+            public void merge(int[] target, int[] partial) {
+                mergeHistograms(target, partial);
+            }
+        });
+
+        float[] valueLut = valueEqualizationLut(widen(histogram), (long) width * height);
+        return (src, dst, from, to) -> applyValueLut(src, dst, from, to, valueLut);
+    }
+
+    // --- Проходы по упакованным массивам 0xRRGGBB на диапазоне индексов [from, to) ---
+
+    // Начальное значение аккумулятора {minR, maxR, minG, maxG, minB, maxB}
+    static int[] newMinMax() {
+        return new int[]{255, 0, 255, 0, 255, 0};
+    }
+
+    static void scanMinMax(int[] pixels, int from, int to, int[] minMax) {
+        int minRed = minMax[0], maxRed = minMax[1];
+        int minGreen = minMax[2], maxGreen = minMax[3];
+        int minBlue = minMax[4], maxBlue = minMax[5];
+
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i];
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+
+            minRed = Math.min(minRed, r);
+            maxRed = Math.max(maxRed, r);
+            minGreen = Math.min(minGreen, g);
+            maxGreen = Math.max(maxGreen, g);
+            minBlue = Math.min(minBlue, b);
+            maxBlue = Math.max(maxBlue, b);
         }
-        
-        float[] equalizedValues = equalizeFloatHistogram(values);
-        
-        index = 0;
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                float[] hsv = ColorSpaceConverter.rgbToHSV(rgb);
-                hsv[2] = equalizedValues[index++];
-                int newRGB = ColorSpaceConverter.hsvToRGB(hsv);
-                result.setRGB(x, y, newRGB);
+
+        minMax[0] = minRed; minMax[1] = maxRed;
+        minMax[2] = minGreen; minMax[3] = maxGreen;
+        minMax[4] = minBlue; minMax[5] = maxBlue;
+    }
+
+    static void mergeMinMax(int[] target, int[] partial) {
+        for (int i = 0; i < 6; i += 2) {
+            target[i] = Math.min(target[i], partial[i]);
+            target[i + 1] = Math.max(target[i + 1], partial[i + 1]);
+        }
+    }
+
+    static void mergeHistograms(int[] target, int[] partial) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += partial[i];
+        }
+    }
+
+    // Гистограммы каналов в одном массиве: [0..255] — R, [256..511] — G, [512..767] — B
+    static void scanChannelHistograms(int[] pixels, int from, int to, int[] histograms) {
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i];
+            histograms[(rgb >> 16) & 0xFF]++;
+            histograms[256 + ((rgb >> 8) & 0xFF)]++;
+            histograms[512 + (rgb & 0xFF)]++;
+        }
+    }
+
+    // Таблица преобразования каналов в той же раскладке, что и гистограммы
+    static int[] linearContrastLut(int[] minMax) {
+        int[] lut = new int[768];
+        for (int channel = 0; channel < 3; channel++) {
+            int min = minMax[channel * 2];
+            int max = minMax[channel * 2 + 1];
+            if (max == min) max = min + 1;
+
+            for (int v = 0; v < 256; v++) {
+                int newValue = (int) ((v - min) * 255.0 / (max - min));
+                lut[channel * 256 + v] = Math.max(0, Math.min(255, newValue));
             }
         }
-        
-        return result;
+        return lut;
+    }
+
+    // Счётчики гистограмм в long: потоковый режим накапливает их по изображениям
+    // больше 2^31 пикселей
+    static long[] widen(int[] counts) {
+        long[] wide = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            wide[i] = counts[i];
+        }
+        return wide;
+    }
+
+    static int[] equalizationLut(long[] histograms, long totalPixels) {
+        int[] lut = new int[768];
+        for (int channel = 0; channel < 3; channel++) {
+            long[] histogram = new long[256];
+            System.arraycopy(histograms, channel * 256, histogram, 0, 256);
+            System.arraycopy(calculateCumulativeHistogram(histogram, totalPixels), 0, lut, channel * 256, 256);
+        }
+        return lut;
     }
-    
-    private int[] calculateCumulativeHistogram(int[] histogram, int totalPixels) {
-        int[] cumulative = new int[256];
+
+    static void applyChannelLut(int[] source, int[] target, int from, int to, int[] lut) {
+        for (int i = from; i < to; i++) {
+            int rgb = source[i];
+            int newR = lut[(rgb >> 16) & 0xFF];
+            int newG = lut[256 + ((rgb >> 8) & 0xFF)];
+            int newB = lut[512 + (rgb & 0xFF)];
+            target[i] = (newR << 16) | (newG << 8) | newB;
+        }
+    }
+
+    // Гистограмма по корзинам V: индекс — максимальный канал пикселя
+    static void scanValueHistogram(int[] pixels, int from, int to, int[] histogram) {
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i];
+            int max = Math.max(Math.max((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF), rgb & 0xFF);
+            histogram[VALUE_BINS[max]]++;
+        }
+    }
+
+    // Новое значение V для каждого максимального канала 0..255
+    static float[] valueEqualizationLut(long[] histogram, long totalPixels) {
+        long[] cumulative = new long[256];
         cumulative[0] = histogram[0];
-        
         for (int i = 1; i < 256; i++) {
             cumulative[i] = cumulative[i-1] + histogram[i];
         }
-        
-        for (int i = 0; i < 256; i++) {
-            cumulative[i] = (int) (cumulative[i] * 255.0 / totalPixels);
-        }
-        
-        return cumulative;
-    }
-    
-    private float[] equalizeFloatHistogram(float[] values) {
-        int[] histogram = new int[256];
-        
-        // Строим гистограмму
-        for (float value : values) {
-            int bin = (int) (value * 255);
-            if (bin >= 0 && bin < 256) {
-                histogram[bin]++;
-            }
+
+        float[] lut = new float[256];
+        for (int max = 0; max < 256; max++) {
+            lut[max] = cumulative[VALUE_BINS[max]] / (float) totalPixels;
         }
-        
-        // Вычисляем кумулятивную гистограмму
-        int[] cumulative = new int[256];
+        return lut;
+    }
+
+    static void applyValueLut(int[] source, int[] target, int from, int to, float[] valueLut) {
+        float[] hsv = new float[3];
+        for (int i = from; i < to; i++) {
+            int rgb = source[i];
+            ColorSpaceConverter.rgbToHSV(rgb, hsv);
+            int max = Math.max(Math.max((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF), rgb & 0xFF);
+            target[i] = ColorSpaceConverter.hsvToRGB(hsv[0], hsv[1], valueLut[max]);
+        }
+    }
+
+    private static int[] calculateCumulativeHistogram(long[] histogram, long totalPixels) {
+        long[] cumulative = new long[256];
         cumulative[0] = histogram[0];
+
         for (int i = 1; i < 256; i++) {
             cumulative[i] = cumulative[i-1] + histogram[i];
         }
-        
-        // Нормализуем
-        float[] equalized = new float[values.length];
-        int total = values.length;
-        
-        for (int i = 0; i < values.length; i++) {
-            int bin = (int) (values[i] * 255);
-            if (bin >= 0 && bin < 256) {
-                equalized[i] = cumulative[bin] / (float) total;
-            } else {
-                equalized[i] = values[i];
-            }
+
+        int[] normalized = new int[256];
+        for (int i = 0; i < 256; i++) {
+            normalized[i] = (int) (cumulative[i] * 255.0 / totalPixels);
         }
-        
-        return equalized;
+
+        return normalized;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+import java.awt.image.BufferedImage;
+
+// Сравнение прямого доступа к растру (ImageProcessor) с прежней реализацией через getRGB/setRGB.
+// Второй раздел — масштабирование параллельного режима от 1 до N потоков.
+// Запуск: java ImageProcessorBenchmark [файл изображения] [максимум потоков]
+public class ImageProcessorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        BufferedImage image = BenchmarkUtils.loadOrGenerate(args, 4000, 3000);
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ImageProcessor processor = new ImageProcessor(1);
+
+        System.out.printf("Изображение %dx%d, тип %d%n", image.getWidth(), image.getHeight(), image.getType());
+
+        BenchmarkUtils.requireSame("Линейное контрастирование",
+            processor.applyLinearContrast(image), ReferenceProcessor.applyLinearContrast(image));
+        BenchmarkUtils.requireSame("Выравнивание RGB",
+            processor.applyHistogramEqualizationRGB(image), ReferenceProcessor.applyHistogramEqualizationRGB(image));
+        BenchmarkUtils.requireSame("Выравнивание HSV",
+            processor.applyHistogramEqualizationHSV(image), ReferenceProcessor.applyHistogramEqualizationHSV(image));
+
+        BenchmarkUtils.measure("getRGB/setRGB: линейное", 3, 5, () -> ReferenceProcessor.applyLinearContrast(image));
+        BenchmarkUtils.measure("растр: линейное", 3, 5, () -> processor.applyLinearContrast(image));
+        BenchmarkUtils.measure("getRGB/setRGB: выравнивание RGB", 3, 5, () -> ReferenceProcessor.applyHistogramEqualizationRGB(image));
+        BenchmarkUtils.measure("растр: выравнивание RGB", 3, 5, () -> processor.applyHistogramEqualizationRGB(image));
+        BenchmarkUtils.measure("getRGB/setRGB: выравнивание HSV", 3, 5, () -> ReferenceProcessor.applyHistogramEqualizationHSV(image));
+        BenchmarkUtils.measure("растр: выравнивание HSV", 3, 5, () -> processor.applyHistogramEqualizationHSV(image));
+
+        // Выделения памяти: у эталона — два float[3] на пиксель и два кадра float,
+        // у нового пути — только результат и таблицы
+        BenchmarkUtils.measureAllocation("getRGB/setRGB: выравнивание HSV", () -> ReferenceProcessor.applyHistogramEqualizationHSV(image));
+        BenchmarkUtils.measureAllocation("растр: выравнивание HSV", () -> processor.applyHistogramEqualizationHSV(image));
+
+        BufferedImage sequentialLinear = processor.applyLinearContrast(image);
+        BufferedImage sequentialRGB = processor.applyHistogramEqualizationRGB(image);
+        BufferedImage sequentialHSV = processor.applyHistogramEqualizationHSV(image);
+        double baseLinear = 0, baseRGB = 0;
+
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            try (ImageProcessor parallel = new ImageProcessor(threads)) {
+                BenchmarkUtils.requireSame("Линейное, потоков: " + threads, parallel.applyLinearContrast(image), sequentialLinear);
+                BenchmarkUtils.requireSame("Выравнивание RGB, потоков: " + threads, parallel.applyHistogramEqualizationRGB(image), sequentialRGB);
+                BenchmarkUtils.requireSame("Выравнивание HSV, потоков: " + threads, parallel.applyHistogramEqualizationHSV(image), sequentialHSV);
+
+                double linear = BenchmarkUtils.measure("линейное, потоков: " + threads, 3, 10, () -> parallel.applyLinearContrast(image));
+                double rgb = BenchmarkUtils.measure("выравнивание RGB, потоков: " + threads, 3, 10, () -> parallel.applyHistogramEqualizationRGB(image));
+                if (threads == 1) {
+                    baseLinear = linear;
+                    baseRGB = rgb;
+                }
+                System.out.printf("    ускорение: линейное x%.2f, выравнивание RGB x%.2f%n", baseLinear / linear, baseRGB / rgb);
+            }
+        }
+    }
+}
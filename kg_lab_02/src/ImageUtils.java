@@ -14,16 +14,22 @@ public class ImageUtils {
         return ImageIO.read(file);
     }
     
-    public static Image scaleImage(BufferedImage image, int maxWidth, int maxHeight) {
+    public static BufferedImage scaleImage(BufferedImage image, int maxWidth, int maxHeight) {
+        return scaleImage(new PreviewScaler.MipPyramid(image), maxWidth, maxHeight);
+    }
+    
+    // Вписывание в maxWidth x maxHeight с сохранением пропорций; пирамида уровней
+    // позволяет повторно масштабировать то же изображение без прохода по полному разрешению
+    public static BufferedImage scaleImage(PreviewScaler.MipPyramid pyramid, int maxWidth, int maxHeight) {
         double scale = Math.min(
-            maxWidth / (double) image.getWidth(),
-            maxHeight / (double) image.getHeight()
+            maxWidth / (double) pyramid.getWidth(),
+            maxHeight / (double) pyramid.getHeight()
         );
         
-        int newWidth = (int) (image.getWidth() * scale);
-        int newHeight = (int) (image.getHeight() * scale);
+        int newWidth = (int) (pyramid.getWidth() * scale);
+        int newHeight = (int) (pyramid.getHeight() * scale);
         
-        return image.getScaledInstance(newWidth, newHeight, Image.SCALE_SMOOTH);
+        return pyramid.scale(newWidth, newHeight);
     }
     
     public static void saveImage(BufferedImage image, String filePath) throws IOException {
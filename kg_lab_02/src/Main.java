@@ -2,6 +2,7 @@ import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        EdtStallMonitor.startIfEnabled();
         SwingUtilities.invokeLater(() -> {
             ImageContrastApp app = new ImageContrastApp();
             app.setVisible(true);
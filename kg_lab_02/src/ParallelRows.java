@@ -0,0 +1,105 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+// Разбиение изображения на горизонтальные полосы строк и их обработка в ForkJoinPool.
+// Диапазоны передаются в индексах упакованного массива пикселей: [row * width, endRow * width).
+// Без пула (pool == null) вся работа выполняется одним вызовом в текущем потоке.
+public class ParallelRows {
+
+    // Минимальное число пикселей в полосе, при котором ещё имеет смысл делить работу
+    private static final int MIN_BAND_PIXELS = 64 * 1024;
+
+    public interface RangeAction {
+        void run(int from, int to);
+    }
+
+    public interface RangeReduction<T> {
+        T newPartial();
+
+        void accumulate(T partial, int from, int to);
+
+        void merge(T target, T partial);
+    }
+
+    public static void forEach(ForkJoinPool pool, int width, int height, RangeAction action) {
+        if (pool == null || height < 2) {
+            action.run(0, width * height);
+            return;
+        }
+        pool.invoke(new BandAction(width, 0, height, bandRows(pool, width, height), action));
+    }
+
+    public static <T> T reduce(ForkJoinPool pool, int width, int height, RangeReduction<T> reduction) {
+        if (pool == null || height < 2) {
+            T result = reduction.newPartial();
+            reduction.accumulate(result, 0, width * height);
+            return result;
+        }
+        return pool.invoke(new BandReduction<>(width, 0, height, bandRows(pool, width, height), reduction));
+    }
+
+    // Несколько полос на поток, чтобы work-stealing выравнивал неравномерную нагрузку
+    private static int bandRows(ForkJoinPool pool, int width, int height) {
+        int byParallelism = height / (pool.getParallelism() * 4);
+        int bySize = (MIN_BAND_PIXELS + width - 1) / Math.max(1, width);
+        return Math.max(1, Math.max(byParallelism, bySize));
+    }
+
+    private static class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int width, startRow, endRow, bandRows;
+        private final RangeAction action;
+
+        BandAction(int width, int startRow, int endRow, int bandRows, RangeAction action) {
+            this.width = width;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.bandRows = bandRows;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= bandRows) {
+                action.run(startRow * width, endRow * width);
+                return;
+            }
+            int middle = (startRow + endRow) >>> 1;
+            invokeAll(new BandAction(width, startRow, middle, bandRows, action),
+                      new BandAction(width, middle, endRow, bandRows, action));
+        }
+    }
+
+    private static class BandReduction<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final int width, startRow, endRow, bandRows;
+        private final RangeReduction<T> reduction;
+
+        BandReduction(int width, int startRow, int endRow, int bandRows, RangeReduction<T> reduction) {
+            this.width = width;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.bandRows = bandRows;
+            this.reduction = reduction;
+        }
+
+        @Override
+        protected T compute() {
+            if (endRow - startRow <= bandRows) {
+                T partial = reduction.newPartial();
+                reduction.accumulate(partial, startRow * width, endRow * width);
+                return partial;
+            }
+            int middle = (startRow + endRow) >>> 1;
+            BandReduction<T> left = new BandReduction<>(width, startRow, middle, bandRows, reduction);
+            BandReduction<T> right = new BandReduction<>(width, middle, endRow, bandRows, reduction);
+            left.fork();
+            T result = right.compute();
+            reduction.merge(result, left.join());
+            return result;
+        }
+    }
+}
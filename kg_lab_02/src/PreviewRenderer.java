@@ -0,0 +1,125 @@
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Быстрый предпросмотр обработки для интерфейса. Контрастирование и сегментация выполняются
+// на уменьшенной копии размером с область просмотра, а не на полном изображении.
+//
+// Таблица контрастирования строится по статистике полного изображения (один раз для каждой
+// пары метод + цветовое пространство) и лишь применяется к копии, поэтому цвета предпросмотра
+// совпадают с итоговым результатом. Сегментация на копии приблизительна: окно 3x3 покрывает
+// на ней большую часть сцены, и отклики детекторов отличаются от полного разрешения.
+//
+// Гистограммы без сегментации строятся по стратифицированной случайной выборке полного
+// изображения (не более MAX_SAMPLES пикселей) с той же таблицей: пиксели в порядке строк
+// делятся на n отрезков равной длины d, из каждого берётся один пиксель в случайной позиции.
+// Каждый пиксель отрезков попадает в выборку с вероятностью 1 / d, поэтому доля пикселей
+// в корзине оценивается со стандартной ошибкой не больше, чем у простой случайной выборки,
+// sqrt(p * (1 - p) / n) <= 0.5 / sqrt(n), — при n = 2^18 это не больше 0.1%. Остаток меньше d
+// пикселей в конце изображения не покрыт, что даёт смещение меньше 1 / n. Периодический
+// рисунок (растр, текстура) не может совпасть с выборкой, как с регулярной сеткой.
+// С сегментацией гистограммы берутся по обработанной копии.
+public class PreviewRenderer {
+
+    private static final int MAX_SAMPLES = 1 << 18;
+    // Фиксированное зерно: один и тот же предпросмотр для одного изображения
+    private static final long SAMPLE_SEED = 0x5DEECE66DL;
+
+    public static class Result {
+        private final BufferedImage image;
+        private final HistogramSet histograms;
+
+        Result(BufferedImage image, HistogramSet histograms) {
+            this.image = image;
+            this.histograms = histograms;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public HistogramSet getHistograms() {
+            return histograms;
+        }
+    }
+
+    private final ImageProcessor processor;
+    private final ResponseCache responseCache;
+    private final BufferedImage original;
+    private final BufferedImage proxy;
+    private final BufferedImage sample;
+    private final Map<String, ImageProcessor.Transform> transforms = new HashMap<>();
+    // Обработанные копии по методу и цветовому пространству: смена только порога или
+    // детектора берёт готовую копию и закэшированную для неё карту откликов
+    private final Map<String, BufferedImage> processedProxies = new HashMap<>();
+
+    public PreviewRenderer(ImageProcessor processor, ResponseCache responseCache, BufferedImage original,
+                           PreviewScaler.MipPyramid pyramid, int maxWidth, int maxHeight) {
+        this.processor = processor;
+        this.responseCache = responseCache;
+        this.original = original;
+        this.proxy = ImageUtils.scaleImage(pyramid, maxWidth, maxHeight);
+        this.sample = sample(original, MAX_SAMPLES);
+    }
+
+    public BufferedImage getOriginal() {
+        return original;
+    }
+
+    // Стандартная ошибка доли пикселей в корзине гистограммы предпросмотра (в худшем случае)
+    public double getMaxBinError() {
+        return 0.5 / Math.sqrt((double) sample.getWidth() * sample.getHeight());
+    }
+
+    public Result render(String method, String colorSpace, String segmentation, int threshold) {
+        ImageProcessor.Transform transform = transformFor(method, colorSpace);
+
+        BufferedImage image = processedProxy(method, colorSpace, transform);
+        BufferedImage segmented = responseCache.segment(image, segmentation, threshold);
+
+        HistogramSet histograms;
+        if (segmented == image) {
+            histograms = HistogramSet.compute(transform != null ? processor.applyTransform(sample, transform) : sample);
+        } else {
+            histograms = HistogramSet.compute(segmented);
+        }
+        return new Result(segmented, histograms);
+    }
+
+    private synchronized ImageProcessor.Transform transformFor(String method, String colorSpace) {
+        String key = method + "|" + colorSpace;
+        if (!transforms.containsKey(key)) {
+            transforms.put(key, processor.prepareTransform(original, method, colorSpace));
+        }
+        return transforms.get(key);
+    }
+
+    private synchronized BufferedImage processedProxy(String method, String colorSpace, ImageProcessor.Transform transform) {
+        String key = method + "|" + colorSpace;
+        BufferedImage image = processedProxies.get(key);
+        if (image == null) {
+            image = transform != null ? processor.applyTransform(proxy, transform) : proxy;
+            processedProxies.put(key, image);
+        }
+        return image;
+    }
+
+    // Один пиксель в случайной позиции из каждого отрезка по stride пикселей подряд;
+    // выборка — изображение count x 1
+    private static BufferedImage sample(BufferedImage image, int maxSamples) {
+        long total = (long) image.getWidth() * image.getHeight();
+        int stride = (int) Math.max(1, (total + maxSamples - 1) / maxSamples);
+        int count = (int) (total / stride);
+
+        int[] source = RasterAccess.readPackedRGB(image);
+        BufferedImage result = RasterAccess.createRGBImage(count, 1);
+        int[] target = RasterAccess.pixelsOf(result);
+        Random random = new Random(SAMPLE_SEED);
+        for (int i = 0; i < count; i++) {
+            int index = i * stride + (stride > 1 ? random.nextInt(stride) : 0);
+            target[i] = source[index] & 0xFFFFFF;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,158 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Уменьшение изображений для предпросмотра на упакованных массивах 0xRRGGBB.
+// Сначала изображение уменьшается вдвое усреднением блоков 2x2, пока следующий шаг не
+// станет меньше нужного размера, затем билинейный проход доводит его до точного размера.
+// На каждом билинейном шаге коэффициент не меньше 0.5, поэтому все пиксели участвуют
+// в результате и заметного алиасинга нет. Строки обрабатываются полосами в общем пуле.
+// Альфа-канал не сохраняется: результат — непрозрачный TYPE_INT_RGB.
+public class PreviewScaler {
+
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    // Уменьшение без кэширования промежуточных уровней
+    public static BufferedImage scale(BufferedImage image, int targetWidth, int targetHeight) {
+        return new MipPyramid(image).scale(targetWidth, targetHeight);
+    }
+
+    // Пирамида уменьшенных вдвое копий одного изображения. Уровни строятся лениво и
+    // сохраняются, так что повторный предпросмотр другого размера начинается с ближайшего
+    // уровня, а не с полного разрешения. Нулевой уровень не хранится: для TYPE_INT_RGB/ARGB
+    // он и так читается без копирования.
+    public static class MipPyramid {
+        private final BufferedImage source;
+        private final List<BufferedImage> levels = new ArrayList<>();
+
+        public MipPyramid(BufferedImage source) {
+            this.source = source;
+        }
+
+        public int getWidth() {
+            return source.getWidth();
+        }
+
+        public int getHeight() {
+            return source.getHeight();
+        }
+
+        public synchronized BufferedImage scale(int targetWidth, int targetHeight) {
+            targetWidth = Math.max(1, targetWidth);
+            targetHeight = Math.max(1, targetHeight);
+
+            int width = source.getWidth();
+            int height = source.getHeight();
+            int[] pixels = null;
+            int level = 0;
+
+            // Спускаемся, пока следующий уровень не меньше цели по обеим сторонам
+            while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+                if (level == levels.size()) {
+                    if (pixels == null) {
+                        pixels = RasterAccess.readPackedRGB(source, POOL);
+                    }
+                    levels.add(halve(pixels, width, height));
+                }
+                BufferedImage next = levels.get(level++);
+                pixels = RasterAccess.pixelsOf(next);
+                width = next.getWidth();
+                height = next.getHeight();
+            }
+
+            if (pixels == null) {
+                pixels = RasterAccess.readPackedRGB(source, POOL);
+            }
+            if (width == targetWidth && height == targetHeight) {
+                return level > 0 ? levels.get(level - 1) : copy(pixels, width, height);
+            }
+            return resizeBilinear(pixels, width, height, targetWidth, targetHeight);
+        }
+    }
+
+    // Уменьшение вдвое: каждый пиксель результата — среднее блока 2x2 с округлением.
+    // При нечётном размере последний столбец или строка отбрасываются.
+    static BufferedImage halve(int[] source, int width, int height) {
+        int halfWidth = Math.max(1, width / 2);
+        int halfHeight = Math.max(1, height / 2);
+        int dx = width > 1 ? 1 : 0;
+        int dy = height > 1 ? width : 0;
+
+        BufferedImage result = RasterAccess.createRGBImage(halfWidth, halfHeight);
+        int[] target = RasterAccess.pixelsOf(result);
+
+        ParallelRows.forEach(POOL, halfWidth, halfHeight, (from, to) -> {
+            for (int y = from / halfWidth, endRow = to / halfWidth; y < endRow; y++) {
+                int top = 2 * y * width;
+                int out = y * halfWidth;
+                for (int x = 0; x < halfWidth; x++, out++) {
+                    int p = top + 2 * x;
+                    int c00 = source[p], c01 = source[p + dx];
+                    int c10 = source[p + dy], c11 = source[p + dy + dx];
+
+                    // Красный и синий складываются одновременно: между ними 8 свободных бит
+                    int rb = (c00 & 0xFF00FF) + (c01 & 0xFF00FF) + (c10 & 0xFF00FF) + (c11 & 0xFF00FF) + 0x020002;
+                    int g = (c00 & 0x00FF00) + (c01 & 0x00FF00) + (c10 & 0x00FF00) + (c11 & 0x00FF00) + 0x000200;
+                    target[out] = ((rb >> 2) & 0xFF00FF) | ((g >> 2) & 0x00FF00);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    // Билинейная интерполяция с выравниванием по центрам пикселей; веса в 8-битной фиксированной точке
+    static BufferedImage resizeBilinear(int[] source, int width, int height, int targetWidth, int targetHeight) {
+        BufferedImage result = RasterAccess.createRGBImage(targetWidth, targetHeight);
+        int[] target = RasterAccess.pixelsOf(result);
+
+        int[] x0 = new int[targetWidth];
+        int[] x1 = new int[targetWidth];
+        int[] wx = new int[targetWidth];
+        for (int x = 0; x < targetWidth; x++) {
+            double sx = Math.max(0.0, (x + 0.5) * width / targetWidth - 0.5);
+            int ix = Math.min((int) sx, width - 1);
+            x0[x] = ix;
+            x1[x] = Math.min(ix + 1, width - 1);
+            wx[x] = (int) ((sx - ix) * 256 + 0.5);
+        }
+
+        ParallelRows.forEach(POOL, targetWidth, targetHeight, (from, to) -> {
+            for (int y = from / targetWidth, endRow = to / targetWidth; y < endRow; y++) {
+                double sy = Math.max(0.0, (y + 0.5) * height / targetHeight - 0.5);
+                int iy = Math.min((int) sy, height - 1);
+                int row0 = iy * width;
+                int row1 = Math.min(iy + 1, height - 1) * width;
+                int wy = (int) ((sy - iy) * 256 + 0.5);
+
+                int out = y * targetWidth;
+                for (int x = 0; x < targetWidth; x++, out++) {
+                    int top = lerp(source[row0 + x0[x]], source[row0 + x1[x]], wx[x]);
+                    int bottom = lerp(source[row1 + x0[x]], source[row1 + x1[x]], wx[x]);
+                    target[out] = lerp(top, bottom, wy);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    // Смешивание двух упакованных цветов с весом w / 256 для второго
+    private static int lerp(int a, int b, int w) {
+        int rbA = a & 0xFF00FF, rbB = b & 0xFF00FF;
+        int gA = a & 0x00FF00, gB = b & 0x00FF00;
+        int rb = (rbA * (256 - w) + rbB * w + 0x800080) >>> 8;
+        int g = (gA * (256 - w) + gB * w + 0x008000) >>> 8;
+        return (rb & 0xFF00FF) | (g & 0x00FF00);
+    }
+
+    private static BufferedImage copy(int[] pixels, int width, int height) {
+        BufferedImage result = RasterAccess.createRGBImage(width, height);
+        int[] target = RasterAccess.pixelsOf(result);
+        for (int i = 0; i < width * height; i++) {
+            target[i] = pixels[i] & 0xFFFFFF;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+// Сравнение предпросмотра через getScaledInstance(SCALE_SMOOTH) с PreviewScaler:
+// без кэша, с готовой пирамидой уровней и среднее отклонение результатов по каналам.
+// Запуск: java PreviewScalerBenchmark [файл изображения]
+public class PreviewScalerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        BufferedImage image = BenchmarkUtils.loadOrGenerate(args, 4000, 3000);
+        int width = 600, height = 400;
+        System.out.printf("Изображение %dx%d -> %dx%d%n", image.getWidth(), image.getHeight(), width, height);
+
+        BufferedImage scaled = ImageUtils.scaleImage(image, width, height);
+        BufferedImage smooth = legacyScale(image, scaled.getWidth(), scaled.getHeight());
+        System.out.printf("Среднее отличие от SCALE_SMOOTH: %.3f уровня на канал%n", meanDifference(scaled, smooth));
+
+        PreviewScaler.MipPyramid pyramid = new PreviewScaler.MipPyramid(image);
+        ImageUtils.scaleImage(pyramid, width, height);
+
+        BenchmarkUtils.measure("getScaledInstance(SCALE_SMOOTH)", 1, 3, () -> legacyScale(image, scaled.getWidth(), scaled.getHeight()));
+        BenchmarkUtils.measure("PreviewScaler: с полного разрешения", 3, 10, () -> ImageUtils.scaleImage(image, width, height));
+        BenchmarkUtils.measure("PreviewScaler: из пирамиды", 3, 10, () -> ImageUtils.scaleImage(pyramid, width, height));
+        BenchmarkUtils.measure("PreviewScaler: из пирамиды, 800x600", 3, 10, () -> ImageUtils.scaleImage(pyramid, 800, 600));
+    }
+
+    // Прежний путь: ленивое масштабирование, которое выполняется при отрисовке
+    private static BufferedImage legacyScale(BufferedImage image, int width, int height) {
+        Image scaled = image.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = result.getGraphics();
+        g.drawImage(scaled, 0, 0, null);
+        g.dispose();
+        return result;
+    }
+
+    private static double meanDifference(BufferedImage a, BufferedImage b) {
+        int[] pa = RasterAccess.readPackedRGB(a);
+        int[] pb = RasterAccess.readPackedRGB(b);
+        long sum = 0;
+        for (int i = 0; i < pa.length; i++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                sum += Math.abs(((pa[i] >> shift) & 0xFF) - ((pb[i] >> shift) & 0xFF));
+            }
+        }
+        return sum / (pa.length * 3.0);
+    }
+}
@@ -0,0 +1,133 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+
+public class RasterAccess {
+
+    // Возвращает пиксели изображения как упакованный массив 0xRRGGBB (старший байт не используется).
+    // Для TYPE_INT_RGB / TYPE_INT_ARGB с непрерывным растром возвращается сам буфер изображения
+    // без копирования, поэтому изменять полученный массив нельзя.
+    public static int[] readPackedRGB(BufferedImage image) {
+        return readPackedRGB(image, null);
+    }
+
+    // То же, но распаковка байтовых растров выполняется полосами строк в указанном пуле
+    public static int[] readPackedRGB(BufferedImage image, ForkJoinPool pool) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (isContiguous(raster, width)) {
+                    return ((DataBufferInt) raster.getDataBuffer()).getData();
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                if (isContiguous(raster, width * 3)) {
+                    return packBGR(pool, ((DataBufferByte) raster.getDataBuffer()).getData(), width, height, 3, 0);
+                }
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                if (isContiguous(raster, width * 4)) {
+                    return packBGR(pool, ((DataBufferByte) raster.getDataBuffer()).getData(), width, height, 4, 1);
+                }
+                break;
+            default:
+                break;
+        }
+
+        // Остальные форматы (палитра, оттенки серого, нестандартные растры) — одно пакетное
+        // чтение через ColorModel вместо вызова getRGB на каждый пиксель
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    // Строки [firstRow, firstRow + rows) как упакованные 0xRRGGBB в начало target
+    // (не меньше rows * width элементов) — для обработки полосами без копии всего изображения
+    public static void readPackedRows(BufferedImage image, int firstRow, int rows, int[] target) {
+        int width = image.getWidth();
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (isContiguous(raster, width)) {
+                    int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                    System.arraycopy(data, firstRow * width, target, 0, rows * width);
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                if (isContiguous(raster, width * 3)) {
+                    packBGRRows(((DataBufferByte) raster.getDataBuffer()).getData(), firstRow * width, rows * width, 3, 0, target);
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                if (isContiguous(raster, width * 4)) {
+                    packBGRRows(((DataBufferByte) raster.getDataBuffer()).getData(), firstRow * width, rows * width, 4, 1, target);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        image.getRGB(0, firstRow, width, rows, target, 0, width);
+    }
+
+    // Создаёт изображение TYPE_INT_RGB, в буфер которого можно писать напрямую через pixelsOf
+    public static BufferedImage createRGBImage(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    // Буфер пикселей изображения, созданного createRGBImage
+    public static int[] pixelsOf(BufferedImage rgbImage) {
+        return ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+    }
+
+    private static int[] packBGR(ForkJoinPool pool, byte[] data, int width, int height, int pixelStride, int colorOffset) {
+        int[] packed = new int[width * height];
+        ParallelRows.forEach(pool, width, height, (from, to) -> {
+            for (int i = from, p = from * pixelStride + colorOffset; i < to; i++, p += pixelStride) {
+                int b = data[p] & 0xFF;
+                int g = data[p + 1] & 0xFF;
+                int r = data[p + 2] & 0xFF;
+                packed[i] = (r << 16) | (g << 8) | b;
+            }
+        });
+        return packed;
+    }
+
+    private static void packBGRRows(byte[] data, int firstPixel, int count, int pixelStride, int colorOffset, int[] target) {
+        for (int i = 0, p = firstPixel * pixelStride + colorOffset; i < count; i++, p += pixelStride) {
+            target[i] = ((data[p + 2] & 0xFF) << 16) | ((data[p + 1] & 0xFF) << 8) | (data[p] & 0xFF);
+        }
+    }
+
+    // Растр должен начинаться с нулевого смещения и не иметь «хвостов» в конце строк
+    private static boolean isContiguous(WritableRaster raster, int expectedScanlineStride) {
+        DataBuffer buffer = raster.getDataBuffer();
+        if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0) {
+            return false;
+        }
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return false;
+        }
+        SampleModel sampleModel = raster.getSampleModel();
+        if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride() == expectedScanlineStride;
+        }
+        if (sampleModel instanceof ComponentSampleModel) {
+            return ((ComponentSampleModel) sampleModel).getScanlineStride() == expectedScanlineStride;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+// Карты откликов для изображений, которые сегментируются повторно с разными порогами.
+// Ключи слабые: карты живут, пока живо само изображение. Под блокировкой только поиск и
+// вставка записи; сами отклики считает поток, который первым запросил пару изображение +
+// детектор, а остальные ждут его результат, не блокируя запросы к другим изображениям.
+public class ResponseCache {
+
+    private final Map<BufferedImage, Map<String, CompletableFuture<ResponseMap>>> entries = new WeakHashMap<>();
+
+    // Сегментация по названию из интерфейса, как SegmentationUtils.segment, но повторный вызов
+    // с другим порогом стоит только копии фона и записи отмеченных пикселей
+    public BufferedImage segment(BufferedImage image, String segmentationType, int threshold) {
+        ResponseMap responses = get(image, segmentationType);
+        return responses != null ? responses.threshold(threshold) : image;
+    }
+
+    // Карта откликов с индексом по корзинам; null — для названия нет детектора
+    public ResponseMap get(BufferedImage image, String segmentationType) {
+        CompletableFuture<ResponseMap> future;
+        boolean owner = false;
+        synchronized (entries) {
+            Map<String, CompletableFuture<ResponseMap>> byType = entries.computeIfAbsent(image, k -> new HashMap<>());
+            future = byType.get(segmentationType);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                byType.put(segmentationType, future);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            try {
+                ResponseMap responses = SegmentationUtils.computeResponses(image, segmentationType);
+                future.complete(responses != null ? responses.buildIndex() : null);
+            } catch (RuntimeException | Error e) {
+                // Неудачный расчёт не кэшируется: ожидающие получат ошибку, следующий вызов посчитает заново
+                synchronized (entries) {
+                    Map<String, CompletableFuture<ResponseMap>> byType = entries.get(image);
+                    if (byType != null) {
+                        byType.remove(segmentationType, future);
+                    }
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return future.join();
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+// Отклики детектора сегментации для одного изображения, не зависящие от порога.
+// Пиксели с откликом отсортированы подсчётом по корзинам 0..255 (отклики больше 255
+// собраны в последнюю корзину вместе со своими значениями), поэтому пороговая стадия —
+// это копия фона и запись цвета только в пиксели с откликом выше порога, без сравнения
+// по всему изображению.
+public class ResponseMap {
+
+    private static final int OVERFLOW = 256;
+
+    private final int width, height;
+    // Изображение без отметок: на него накладываются найденные точки
+    private final int[] background;
+    private final int[] palette;
+
+    // До построения индекса: отклик и номер цвета для каждого пикселя
+    private int[] response;
+    private byte[] orientation;
+
+    // После построения: индексы пикселей, упорядоченные по корзинам; bucketStart[b] — начало корзины b
+    private int[] indices;
+    private int[] bucketStart;
+    // Точные отклики для корзины OVERFLOW (порог выше 255)
+    private int[] overflowResponses;
+    // Цвет отметки для каждого элемента indices, либо null, если цвет один (palette[0])
+    private int[] markColors;
+
+    // response[i] < 0 — пиксель не отмечается ни при каком пороге; orientation — номер
+    // цвета в palette для каждого пикселя или null, если цвет один (palette[0])
+    ResponseMap(int width, int height, int[] background, int[] response, byte[] orientation, int[] palette) {
+        this.width = width;
+        this.height = height;
+        this.background = background;
+        this.response = response;
+        this.orientation = orientation;
+        this.palette = palette;
+    }
+
+    // Сортировка подсчётом по корзинам откликов; массивы откликов после этого не нужны.
+    // Для однократной сегментации индекс не строится: хватает одного прохода сравнения.
+    public synchronized ResponseMap buildIndex() {
+        if (indices != null) {
+            return this;
+        }
+
+        int[] counts = new int[OVERFLOW + 1];
+        for (int value : response) {
+            if (value >= 0) {
+                counts[Math.min(value, OVERFLOW)]++;
+            }
+        }
+        bucketStart = new int[OVERFLOW + 2];
+        for (int b = 0; b <= OVERFLOW; b++) {
+            bucketStart[b + 1] = bucketStart[b] + counts[b];
+        }
+
+        int[] sorted = new int[bucketStart[OVERFLOW + 1]];
+        overflowResponses = new int[counts[OVERFLOW]];
+        markColors = orientation != null ? new int[sorted.length] : null;
+
+        int[] next = Arrays.copyOf(bucketStart, OVERFLOW + 1);
+        for (int i = 0; i < response.length; i++) {
+            int value = response[i];
+            if (value < 0) continue;
+            int bucket = Math.min(value, OVERFLOW);
+            int position = next[bucket]++;
+            sorted[position] = i;
+            if (bucket == OVERFLOW) {
+                overflowResponses[position - bucketStart[OVERFLOW]] = value;
+            }
+            if (markColors != null) {
+                markColors[position] = palette[orientation[i]];
+            }
+        }
+
+        indices = sorted;
+        response = null;
+        orientation = null;
+        return this;
+    }
+
+    // Результат сегментации с условием «отклик > threshold»
+    public synchronized BufferedImage threshold(int threshold) {
+        BufferedImage result = RasterAccess.createRGBImage(width, height);
+        int[] target = RasterAccess.pixelsOf(result);
+        System.arraycopy(background, 0, target, 0, background.length);
+
+        if (indices == null) {
+            markByComparison(target, threshold);
+        } else if (threshold < OVERFLOW) {
+            // Все корзины после порога целиком, включая OVERFLOW
+            mark(target, bucketStart[Math.max(0, threshold + 1)], indices.length);
+        } else {
+            int base = bucketStart[OVERFLOW];
+            for (int k = 0; k < overflowResponses.length; k++) {
+                if (overflowResponses[k] > threshold) {
+                    mark(target, base + k, base + k + 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void markByComparison(int[] target, int threshold) {
+        int limit = Math.max(threshold, -1);
+        if (orientation == null) {
+            int color = palette[0];
+            for (int i = 0; i < response.length; i++) {
+                if (response[i] > limit) {
+                    target[i] = color;
+                }
+            }
+        } else {
+            for (int i = 0; i < response.length; i++) {
+                if (response[i] > limit) {
+                    target[i] = palette[orientation[i]];
+                }
+            }
+        }
+    }
+
+    private void mark(int[] target, int from, int to) {
+        if (markColors == null) {
+            int color = palette[0];
+            for (int k = from; k < to; k++) {
+                target[indices[k]] = color;
+            }
+        } else {
+            for (int k = from; k < to; k++) {
+                target[indices[k]] = markColors[k];
+            }
+        }
+    }
+}
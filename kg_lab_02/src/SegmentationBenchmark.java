@@ -0,0 +1,40 @@
+import java.awt.image.BufferedImage;
+
+// Сравнение детекторов SegmentationUtils на движке свёртки с прежней реализацией,
+// затем стоимость смены порога по закэшированной карте откликов.
+// Запуск: java SegmentationBenchmark [файл изображения] [порог]
+public class SegmentationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        BufferedImage image = BenchmarkUtils.loadOrGenerate(args, 2000, 1500);
+        int threshold = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        System.out.printf("Изображение %dx%d, порог %d%n", image.getWidth(), image.getHeight(), threshold);
+
+        BenchmarkUtils.requireSame("Точки", SegmentationUtils.detectPoints(image, threshold), ReferenceSegmentation.detectPoints(image, threshold));
+        BenchmarkUtils.requireSame("Линии", SegmentationUtils.detectLines(image, threshold), ReferenceSegmentation.detectLines(image, threshold));
+        BenchmarkUtils.requireSame("Перепады", SegmentationUtils.detectEdges(image, threshold), ReferenceSegmentation.detectEdges(image, threshold));
+
+        BenchmarkUtils.measure("прежние: точки", 2, 5, () -> ReferenceSegmentation.detectPoints(image, threshold));
+        BenchmarkUtils.measure("движок свёртки: точки", 3, 10, () -> SegmentationUtils.detectPoints(image, threshold));
+        BenchmarkUtils.measure("прежние: линии", 2, 5, () -> ReferenceSegmentation.detectLines(image, threshold));
+        BenchmarkUtils.measure("движок свёртки: линии", 3, 10, () -> SegmentationUtils.detectLines(image, threshold));
+        BenchmarkUtils.measure("прежние: перепады", 2, 5, () -> ReferenceSegmentation.detectEdges(image, threshold));
+        BenchmarkUtils.measure("движок свёртки: перепады", 3, 10, () -> SegmentationUtils.detectEdges(image, threshold));
+
+        String[] types = {"Обнаружение точек", "Обнаружение линий", "Обнаружение перепадов яркости"};
+        int[] thresholds = {-5, 0, threshold, 254, 255, 256, 400, 2000};
+        for (String type : types) {
+            ResponseMap indexed = SegmentationUtils.computeResponses(image, type).buildIndex();
+            for (int t : thresholds) {
+                BufferedImage expected = SegmentationUtils.segment(image, type, t);
+                BenchmarkUtils.requireSame(type + ", порог " + t + ", сравнение", SegmentationUtils.computeResponses(image, type).threshold(t), expected);
+                BenchmarkUtils.requireSame(type + ", порог " + t + ", индекс", indexed.threshold(t), expected);
+            }
+
+            BenchmarkUtils.measure(type + ": карта откликов", 2, 5, () -> SegmentationUtils.computeResponses(image, type).buildIndex());
+            int[] next = {0};
+            BenchmarkUtils.measure(type + ": смена порога", 5, 50, () -> indexed.threshold(next[0]++ % 256));
+        }
+    }
+}
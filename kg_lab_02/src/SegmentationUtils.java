@@ -1,179 +1,278 @@
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 public class SegmentationUtils {
-    
+
+    private static final ConvolutionEngine.Kernel LAPLACIAN = ConvolutionEngine.kernel(new int[][]{
+        {-1, -1, -1},
+        {-1,  8, -1},
+        {-1, -1, -1}
+    });
+
+    private static final ConvolutionEngine.Kernel SOBEL_X = ConvolutionEngine.kernel(new int[][]{
+        {-1, 0, 1},
+        {-2, 0, 2},
+        {-1, 0, 1}
+    });
+
+    private static final ConvolutionEngine.Kernel SOBEL_Y = ConvolutionEngine.kernel(new int[][]{
+        {-1, -2, -1},
+        { 0,  0,  0},
+        { 1,  2,  1}
+    });
+
+    private static final int POINT_COLOR = Color.RED.getRGB() & 0xFFFFFF;
+    private static final int EDGE_COLOR = Color.YELLOW.getRGB() & 0xFFFFFF;
+    private static final int[] ORIENTATION_COLORS = {
+        Color.RED.getRGB() & 0xFFFFFF,
+        Color.GREEN.getRGB() & 0xFFFFFF,
+        Color.BLUE.getRGB() & 0xFFFFFF,
+        Color.CYAN.getRGB() & 0xFFFFFF
+    };
+
+    // Сегментация по названию из интерфейса; "Без сегментации" и неизвестные названия
+    // возвращают исходное изображение
+    public static BufferedImage segment(BufferedImage image, String segmentationType, int threshold) {
+        switch (segmentationType) {
+            case "Обнаружение точек":
+                return detectPoints(image, threshold);
+
+            case "Обнаружение линий":
+                return detectLines(image, threshold);
+
+            case "Обнаружение перепадов яркости":
+                return detectEdges(image, threshold);
+
+            default:
+                return image;
+        }
+    }
+
+    // Стадия откликов без порога; detectX(image, t) == computeResponses(image, X).threshold(t).
+    // Повторное использование откликов с разными порогами — ResponseCache
+    public static ResponseMap computeResponses(BufferedImage image, String segmentationType) {
+        switch (segmentationType) {
+            case "Обнаружение точек":
+                return pointResponses(image);
+
+            case "Обнаружение линий":
+                return lineResponses(image);
+
+            case "Обнаружение перепадов яркости":
+                return edgeResponses(image);
+
+            default:
+                return null;
+        }
+    }
+
     public static BufferedImage detectPoints(BufferedImage image, int threshold) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        
-        BufferedImage grayImage = toGrayscale(image);
-
-        int[][] laplacianMask = {
-            {-1, -1, -1},
-            {-1,  8, -1},
-            {-1, -1, -1}
-        };
-        
-        Graphics g = result.getGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
+        BufferedImage result = copyToRGB(image);
+        int[] target = RasterAccess.pixelsOf(result);
+
+        byte[] gray = ConvolutionEngine.toGray(image);
+        int[] scratch = new int[width];
+        int[] response = new int[width];
 
         for (int y = 1; y < height - 1; y++) {
+            ConvolutionEngine.convolveRow(gray, width, y, LAPLACIAN, scratch, response);
+            int offset = y * width;
             for (int x = 1; x < width - 1; x++) {
-                double response = 0;
-                
-                for (int i = -1; i <= 1; i++) {
-                    for (int j = -1; j <= 1; j++) {
-                        int pixel = getGrayValue(grayImage, x + j, y + i);
-                        response += pixel * laplacianMask[i + 1][j + 1];
-                    }
-                }
-
-                if (Math.abs(response) > threshold) {
-                    result.setRGB(x, y, Color.RED.getRGB());
+                if (Math.abs(response[x]) > threshold) {
+                    target[offset + x] = POINT_COLOR;
                 }
             }
         }
-        
+
         return result;
     }
-    
+
+    // Маски линий (горизонтальная, вертикальная, 45°, 135°) имеют вид 3 * L - S, где S — сумма
+    // всех девяти пикселей окна, а L — сумма трёх пикселей вдоль линии маски:
+    //   {-1,-1,-1}   {-1, 2,-1}   {-1,-1, 2}   { 2,-1,-1}
+    //   { 2, 2, 2}   {-1, 2,-1}   {-1, 2,-1}   {-1, 2,-1}
+    //   {-1,-1,-1}   {-1, 2,-1}   { 2,-1,-1}   {-1,-1, 2}
+    // Поэтому все четыре отклика считаются за один проход по окну, которое сдвигается
+    // вдоль строки: каждый пиксель читается из памяти один раз на строку окна.
     public static BufferedImage detectLines(BufferedImage image, int threshold) {
+        BufferedImage result = copyToRGB(image);
+        scanLines(image, threshold, RasterAccess.pixelsOf(result), null, null);
+        return result;
+    }
+
+    // Проход детектора линий в одном из двух режимов: с порогом — отметки пишутся сразу
+    // в target; при responses != null — в responses/orientations записываются максимум
+    // и номер маски для всех пикселей с единственным максимумом (порог -1)
+    private static void scanLines(BufferedImage image, int threshold, int[] target, int[] responses, byte[] orientations) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        BufferedImage grayImage = toGrayscale(image);
-        
-        int[][][] masks = {
-            // Горизонтальная маска
-            {{-1, -1, -1},
-             { 2,  2,  2},
-             {-1, -1, -1}},
-            
-            // Вертикальная маска  
-            {{-1,  2, -1},
-             {-1,  2, -1},
-             {-1,  2, -1}},
-            
-            // Диагональная маска 45°
-            {{-1, -1,  2},
-             {-1,  2, -1},
-             { 2, -1, -1}},
-            
-            // Диагональная маска 135°
-            {{ 2, -1, -1},
-             {-1,  2, -1},
-             {-1, -1,  2}}
-        };
-
-         Graphics g = result.getGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
-        
-        Color[] orientationColors = {Color.RED, Color.GREEN, Color.BLUE, Color.CYAN};
-        
+        // Без полного окна 3x3 отмечать нечего; начальное окно строки читает столбец 1,
+        // которого при ширине 1 нет
+        if (width < 3 || height < 3) {
+            return;
+        }
+        byte[] gray = ConvolutionEngine.toGray(image);
+
         for (int y = 1; y < height - 1; y++) {
+            int above = (y - 1) * width;
+            int middle = y * width;
+            int below = (y + 1) * width;
+
+            // Левый и центральный столбцы окна: верх, середина, низ
+            int a0 = gray[above] & 0xFF, m0 = gray[middle] & 0xFF, b0 = gray[below] & 0xFF;
+            int a1 = gray[above + 1] & 0xFF, m1 = gray[middle + 1] & 0xFF, b1 = gray[below + 1] & 0xFF;
+            int column0 = a0 + m0 + b0;
+            int column1 = a1 + m1 + b1;
+
             for (int x = 1; x < width - 1; x++) {
-                double[] responses = new double[4];
-                
-                for (int maskIdx = 0; maskIdx < 4; maskIdx++) {
-                    double response = 0;
-                    
-                    for (int ky = -1; ky <= 1; ky++) {
-                        for (int kx = -1; kx <= 1; kx++) {
-                            int pixel = getGrayValue(grayImage, x + kx, y + ky);
-                            response += masks[maskIdx][ky+1][kx+1] * pixel;
+                int a2 = gray[above + x + 1] & 0xFF;
+                int m2 = gray[middle + x + 1] & 0xFF;
+                int b2 = gray[below + x + 1] & 0xFF;
+                int column2 = a2 + m2 + b2;
+
+                int sum = column0 + column1 + column2;
+                int horizontal = Math.abs(3 * (m0 + m1 + m2) - sum);
+                int vertical = Math.abs(3 * column1 - sum);
+                int diagonal45 = Math.abs(3 * (a2 + m1 + b0) - sum);
+                int diagonal135 = Math.abs(3 * (a0 + m1 + b2) - sum);
+
+                int maxResponse = Math.max(Math.max(horizontal, vertical), Math.max(diagonal45, diagonal135));
+
+                // Точка линии — только если максимум единственный и превышает порог
+                if (maxResponse > threshold) {
+                    int maxIndex = -1;
+                    int winners = 0;
+                    if (horizontal == maxResponse) { maxIndex = 0; winners++; }
+                    if (vertical == maxResponse) { maxIndex = 1; winners++; }
+                    if (diagonal45 == maxResponse) { maxIndex = 2; winners++; }
+                    if (diagonal135 == maxResponse) { maxIndex = 3; winners++; }
+
+                    if (winners == 1) {
+                        if (responses == null) {
+                            target[middle + x] = ORIENTATION_COLORS[maxIndex];
+                        } else {
+                            responses[middle + x] = maxResponse;
+                            orientations[middle + x] = (byte) maxIndex;
                         }
                     }
-                    
-                    responses[maskIdx] = Math.abs(response);
-                }
-                
-
-                int maxIndex = 0;
-                double maxResponse = responses[0];
-                for (int i = 1; i < 4; i++) {
-                    if (responses[i] > maxResponse) {
-                        maxResponse = responses[i];
-                        maxIndex = i;
-                    }
-                }
-                
-                boolean isLinePoint = true;
-                for (int i = 0; i < 4; i++) {
-                    if (i != maxIndex && maxResponse <= responses[i]) {
-                        isLinePoint = false;
-                        break;
-                    }
-                }
-                
-                if (isLinePoint && maxResponse > threshold) {
-                    result.setRGB(x, y, orientationColors[maxIndex].getRGB());
                 }
+
+                a0 = a1; m0 = m1; b0 = b1; column0 = column1;
+                a1 = a2; m1 = m2; b1 = b2; column1 = column2;
             }
         }
-        
-        return result;
     }
 
     public static BufferedImage detectEdges(BufferedImage image, int threshold) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        
-        BufferedImage grayImage = toGrayscale(image);
-        
-        int[][] sobelX = {{-1, 0, 1}, 
-                          {-2, 0, 2}, 
-                          {-1, 0, 1}};
-
-        int[][] sobelY = {{-1, -2, -1}, 
-                          {0, 0, 0}, 
-                          {1, 2, 1}};
-        
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                int gx = 0, gy = 0;
+        BufferedImage result = RasterAccess.createRGBImage(width, height);
+        int[] target = RasterAccess.pixelsOf(result);
+        int[] source = RasterAccess.readPackedRGB(image);
 
-                for (int ky = -1; ky <= 1; ky++) {
-                    for (int kx = -1; kx <= 1; kx++) {
-                        int pixel = getGrayValue(grayImage, x + kx, y + ky);
-                        gx += sobelX[ky+1][kx+1] * pixel;
-                        gy += sobelY[ky+1][kx+1] * pixel;
-                    }
-                }
+        byte[] gray = ConvolutionEngine.toGray(image);
+        int[] scratch = new int[width];
+        int[] gradientX = new int[width];
+        int[] gradientY = new int[width];
 
+        // Граничные пиксели, как и раньше, остаются чёрными
+        for (int y = 1; y < height - 1; y++) {
+            ConvolutionEngine.convolveRow(gray, width, y, SOBEL_X, scratch, gradientX);
+            ConvolutionEngine.convolveRow(gray, width, y, SOBEL_Y, scratch, gradientY);
+
+            int offset = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int gx = gradientX[x];
+                int gy = gradientY[x];
                 int grad = (int) Math.sqrt(gx * gx + gy * gy);
-                
-                if (grad > threshold) {
-                    result.setRGB(x, y, Color.YELLOW.getRGB());
-                } else {
-                    result.setRGB(x, y, image.getRGB(x, y));
-                }
+
+                target[offset + x] = grad > threshold ? EDGE_COLOR : source[offset + x] & 0xFFFFFF;
             }
         }
-        
+
         return result;
     }
 
-    private static BufferedImage toGrayscale(BufferedImage image) {
+    // Отклик — модуль лапласиана; фон — копия изображения
+    private static ResponseMap pointResponses(BufferedImage image) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        
-        Graphics g = gray.getGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
-        
-        return gray;
+        int[] background = RasterAccess.pixelsOf(copyToRGB(image));
+        int[] responses = newResponses(width, height);
+
+        byte[] gray = ConvolutionEngine.toGray(image);
+        int[] scratch = new int[width];
+        int[] response = new int[width];
+
+        for (int y = 1; y < height - 1; y++) {
+            ConvolutionEngine.convolveRow(gray, width, y, LAPLACIAN, scratch, response);
+            int offset = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                responses[offset + x] = Math.abs(response[x]);
+            }
+        }
+
+        return new ResponseMap(width, height, background, responses, null, new int[]{POINT_COLOR});
+    }
+
+    // Отклик — максимум четырёх масок линий, если он единственный; цвет — по номеру маски
+    private static ResponseMap lineResponses(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] background = RasterAccess.pixelsOf(copyToRGB(image));
+        int[] responses = newResponses(width, height);
+        byte[] orientations = new byte[width * height];
+
+        scanLines(image, -1, null, responses, orientations);
+
+        return new ResponseMap(width, height, background, responses, orientations, ORIENTATION_COLORS);
     }
-    
-    private static int getGrayValue(BufferedImage grayImage, int x, int y) {
-        if (x < 0 || x >= grayImage.getWidth() || y < 0 || y >= grayImage.getHeight()) {
-            return 0;
+
+    // Отклик — модуль градиента Собеля; фон — исходные цвета внутри и чёрная рамка
+    private static ResponseMap edgeResponses(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] background = new int[width * height];
+        int[] responses = newResponses(width, height);
+        int[] source = RasterAccess.readPackedRGB(image);
+
+        byte[] gray = ConvolutionEngine.toGray(image);
+        int[] scratch = new int[width];
+        int[] gradientX = new int[width];
+        int[] gradientY = new int[width];
+
+        for (int y = 1; y < height - 1; y++) {
+            ConvolutionEngine.convolveRow(gray, width, y, SOBEL_X, scratch, gradientX);
+            ConvolutionEngine.convolveRow(gray, width, y, SOBEL_Y, scratch, gradientY);
+
+            int offset = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int gx = gradientX[x];
+                int gy = gradientY[x];
+                responses[offset + x] = (int) Math.sqrt(gx * gx + gy * gy);
+                background[offset + x] = source[offset + x] & 0xFFFFFF;
+            }
         }
-        return grayImage.getRGB(x, y) & 0xFF;
+
+        return new ResponseMap(width, height, background, responses, null, new int[]{EDGE_COLOR});
+    }
+
+    // Граничные пиксели без полного окна 3x3 не отмечаются ни при каком пороге
+    private static int[] newResponses(int width, int height) {
+        int[] responses = new int[width * height];
+        Arrays.fill(responses, -1);
+        return responses;
+    }
+
+    // Копия исходного изображения в TYPE_INT_RGB, поверх которой отмечаются найденные точки
+    private static BufferedImage copyToRGB(BufferedImage image) {
+        BufferedImage result = RasterAccess.createRGBImage(image.getWidth(), image.getHeight());
+        Graphics g = result.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,310 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+
+// Обработка изображений, не помещающихся в память целиком. Файл читается полосами строк
+// через ImageReadParam.setSourceRegion: первый проход собирает глобальную статистику
+// (min/max или гистограммы), второй применяет таблицу преобразования и отдаёт полосы
+// ImageWriter'у по мере того, как он их запрашивает. Пиковая память ограничена размером
+// полосы, а не изображения.
+//
+// Ограничения форматов: PNG и BMP запрашивают у исходного изображения по строке, поэтому
+// пишутся потоково. Декодеры JPEG и PNG не умеют переходить к произвольной строке и при
+// каждом чтении полосы разбирают файл с начала — память остаётся ограниченной, но время
+// чтения растёт с числом полос; более крупные полосы уменьшают эти повторы.
+public class StreamingProcessor implements AutoCloseable {
+
+    private static final ColorModel RGB_MODEL = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+
+    private final int stripRows;
+    private final ForkJoinPool pool;
+
+    public StreamingProcessor(int stripRows) {
+        this(stripRows, 1);
+    }
+
+    public StreamingProcessor(int stripRows, int parallelism) {
+        if (stripRows < 1) {
+            throw new IllegalArgumentException("Высота полосы должна быть положительной: " + stripRows);
+        }
+        this.stripRows = stripRows;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    // Останавливает потоки пула, как ImageProcessor.close()
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // method и colorSpace — те же строки, что и в ImageProcessor.processImage;
+    // возвращает число обработанных пикселей
+    public long process(File input, File output, String method, String colorSpace) throws IOException {
+        String format = output.getName().substring(output.getName().lastIndexOf('.') + 1).toLowerCase();
+        if (!format.equals("png") && !format.equals("bmp")) {
+            // JPEG writer запрашивает getData() всего изображения, что лишает смысла потоковый режим
+            throw new IOException("Потоковая запись поддерживается только для PNG и BMP: " + output);
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("Нет ImageWriter для формата: " + format);
+        }
+        ImageWriter writer = writers.next();
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(input)) {
+            if (in == null) {
+                throw new IOException("Не удалось открыть файл: " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Неизвестный формат изображения: " + input);
+            }
+            ImageReader reader = readers.next();
+            reader.setInput(in, false, true);
+
+            try {
+                ImageProcessor.Transform operation = prepare(reader, method, colorSpace);
+
+                output.delete();
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(output)) {
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(new StripImage(reader, operation), null, null), null);
+                }
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+                writer.dispose();
+            }
+        }
+    }
+
+    // Первый проход: статистика по всем полосам и построение таблицы преобразования
+    private ImageProcessor.Transform prepare(ImageReader reader, String method, String colorSpace) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        long totalPixels = (long) width * height;
+
+        if (method.equals("Линейное контрастирование")) {
+            int[] minMax = ImageProcessor.newMinMax();
+            for (int y = 0; y < height; y += stripRows) {
+                BufferedImage strip = readStrip(reader, y);
+                int[] pixels = RasterAccess.readPackedRGB(strip, pool);
+                int[] partial = ParallelRows.reduce(pool, strip.getWidth(), strip.getHeight(), new ParallelRows.RangeReduction<int[]>() {
+                    public int[] newPartial() {
+                        return ImageProcessor.newMinMax();
+                    }
+
+                    public void accumulate(int[] part, int from, int to) {
+                        ImageProcessor.scanMinMax(pixels, from, to, part);
+                    }
+
+                    public void merge(int[] target, int[] part) {
+                        ImageProcessor.mergeMinMax(target, part);
+                    }
+                });
+                ImageProcessor.mergeMinMax(minMax, partial);
+            }
+            int[] lut = ImageProcessor.linearContrastLut(minMax);
+            return (source, target, from, to) -> ImageProcessor.applyChannelLut(source, target, from, to, lut);
+        }
+
+        boolean hsv = colorSpace.equals("HSV");
+        if (!hsv && !colorSpace.equals("RGB")) {
+            return (source, target, from, to) -> System.arraycopy(source, from, target, from, to - from);
+        }
+
+        long[] histograms = new long[hsv ? 256 : 768];
+        for (int y = 0; y < height; y += stripRows) {
+            BufferedImage strip = readStrip(reader, y);
+            int[] pixels = RasterAccess.readPackedRGB(strip, pool);
+            int[] partial = ParallelRows.reduce(pool, strip.getWidth(), strip.getHeight(), new ParallelRows.RangeReduction<int[]>() {
+                public int[] newPartial() {
+                    return new int[histograms.length];
+                }
+
+                public void accumulate(int[] part, int from, int to) {
+                    if (hsv) {
+                        ImageProcessor.scanValueHistogram(pixels, from, to, part);
+                    } else {
+                        ImageProcessor.scanChannelHistograms(pixels, from, to, part);
+                    }
+                }
+
+                public void merge(int[] target, int[] part) {
+                    ImageProcessor.mergeHistograms(target, part);
+                }
+            });
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] += partial[i];
+            }
+        }
+
+        if (hsv) {
+            float[] valueLut = ImageProcessor.valueEqualizationLut(histograms, totalPixels);
+            return (source, target, from, to) -> ImageProcessor.applyValueLut(source, target, from, to, valueLut);
+        }
+        int[] lut = ImageProcessor.equalizationLut(histograms, totalPixels);
+        return (source, target, from, to) -> ImageProcessor.applyChannelLut(source, target, from, to, lut);
+    }
+
+    private BufferedImage readStrip(ImageReader reader, int y) throws IOException {
+        int width = reader.getWidth(0);
+        int rows = Math.min(stripRows, reader.getHeight(0) - y);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, y, width, rows));
+        return reader.read(0, param);
+    }
+
+    // Результат как RenderedImage из полос-тайлов во всю ширину. Полоса декодируется и
+    // преобразуется только когда writer запрашивает её строки; в памяти — одна полоса.
+    private class StripImage implements RenderedImage {
+        private final ImageReader reader;
+        private final ImageProcessor.Transform operation;
+        private final int width, height;
+        private final SampleModel sampleModel;
+
+        private int cachedStrip = -1;
+        private WritableRaster cachedRaster;
+
+        StripImage(ImageReader reader, ImageProcessor.Transform operation) throws IOException {
+            this.reader = reader;
+            this.operation = operation;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+            this.sampleModel = RGB_MODEL.createCompatibleSampleModel(width, stripRows);
+        }
+
+        private synchronized Raster strip(int index) {
+            if (index != cachedStrip) {
+                try {
+                    BufferedImage source = readStrip(reader, index * stripRows);
+                    int[] pixels = RasterAccess.readPackedRGB(source, pool);
+                    BufferedImage result = RasterAccess.createRGBImage(source.getWidth(), source.getHeight());
+                    int[] target = RasterAccess.pixelsOf(result);
+                    ParallelRows.forEach(pool, source.getWidth(), source.getHeight(),
+                        (from, to) -> operation.apply(pixels, target, from, to));
+
+                    cachedRaster = result.getRaster().createWritableTranslatedChild(0, index * stripRows);
+                    cachedStrip = index;
+                } catch (IOException e) {
+                    throw new IllegalStateException("Ошибка чтения полосы " + index, e);
+                }
+            }
+            return cachedRaster;
+        }
+
+        public Raster getTile(int tileX, int tileY) {
+            return strip(tileY);
+        }
+
+        public Raster getData(Rectangle rect) {
+            WritableRaster raster = RGB_MODEL.createCompatibleWritableRaster(rect.width, rect.height)
+                .createWritableTranslatedChild(rect.x, rect.y);
+            copyData(raster);
+            return raster;
+        }
+
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                raster = RGB_MODEL.createCompatibleWritableRaster(width, height);
+            }
+            int first = Math.max(0, raster.getMinY() / stripRows);
+            int last = Math.min(getNumYTiles() - 1, (raster.getMinY() + raster.getHeight() - 1) / stripRows);
+            for (int index = first; index <= last; index++) {
+                raster.setRect(strip(index));
+            }
+            return raster;
+        }
+
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        public Object getProperty(String name) {
+            return java.awt.Image.UndefinedProperty;
+        }
+
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        public ColorModel getColorModel() {
+            return RGB_MODEL;
+        }
+
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getMinX() {
+            return 0;
+        }
+
+        public int getMinY() {
+            return 0;
+        }
+
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        public int getNumYTiles() {
+            return (height + stripRows - 1) / stripRows;
+        }
+
+        public int getMinTileX() {
+            return 0;
+        }
+
+        public int getMinTileY() {
+            return 0;
+        }
+
+        public int getTileWidth() {
+            return width;
+        }
+
+        public int getTileHeight() {
+            return stripRows;
+        }
+
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+// Наблюдатель за вызовами растровых алгоритмов: устанавливается через
+// Algorithms.setListener и получает имя алгоритма, число выданных пикселей и время вызова
+@FunctionalInterface
+public interface AlgorithmListener {
+    void onCall(String algorithm, long pixels, long nanos);
+}
@@ -0,0 +1,107 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики вызовов и пикселей и гистограмма времени вызова по каждому алгоритму.
+//
+// Гистограмма логарифмически-линейная, как в HdrHistogram: значения до 8 нс хранятся
+// точно, дальше каждый интервал [2^e, 2^(e+1)) делится на 8 равных корзин, так что
+// относительная погрешность процентилей не больше 1/8. Все счётчики потокобезопасны.
+//
+// Подключение: Algorithms.setListener(metrics). В RasterGraphics включается свойством
+// -Dkg.algorithmMetrics=true, отчёт печатается при выходе.
+public class AlgorithmMetrics implements AlgorithmListener {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = (63 - 2) * SUB_BUCKETS;
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCall(String algorithm, long pixels, long nanos) {
+        stats.computeIfAbsent(algorithm, name -> new Stats()).record(pixels, nanos);
+    }
+
+    public long getCalls(String algorithm) {
+        Stats s = stats.get(algorithm);
+        return s == null ? 0 : s.calls.sum();
+    }
+
+    public long getPixels(String algorithm) {
+        Stats s = stats.get(algorithm);
+        return s == null ? 0 : s.pixels.sum();
+    }
+
+    // Верхняя граница корзины, в которую попадает заданная доля вызовов (0..1); 0, если вызовов не было
+    public long getLatencyPercentile(String algorithm, double fraction) {
+        Stats s = stats.get(algorithm);
+        return s == null ? 0 : s.percentile(fraction);
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    // Строка на алгоритм: вызовы, пиксели, медиана, 99-й процентиль и максимум времени
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Stats s = entry.getValue();
+            sb.append(String.format("%-16s вызовов: %d, пикселей: %d, время p50: %d нс, p99: %d нс, max: %d нс%n",
+                entry.getKey(), s.calls.sum(), s.pixels.sum(),
+                s.percentile(0.5), s.percentile(0.99), s.percentile(1.0)));
+        }
+        return sb.toString();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return (exponent - 2) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 2;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 3);
+        return lower + (1L << (exponent - 3)) - 1;
+    }
+
+    private static class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder pixels = new LongAdder();
+        final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+
+        void record(long pixelCount, long nanos) {
+            calls.increment();
+            pixels.add(pixelCount);
+            latency.incrementAndGet(bucketOf(nanos));
+        }
+
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += latency.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += latency.get(i);
+                if (seen >= rank) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(BUCKETS - 1);
+        }
+    }
+}
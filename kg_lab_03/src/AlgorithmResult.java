@@ -1,15 +1,34 @@
 import java.util.List;
 
 public class AlgorithmResult {
+    private PointBuffer buffer;
     private List<Point> points;
     private long executionTime; // в микросекундах
 
+    public AlgorithmResult(PointBuffer buffer, long executionTime) {
+        this.buffer = buffer;
+        this.executionTime = executionTime;
+    }
+
     public AlgorithmResult(List<Point> points, long executionTime) {
+        this.buffer = new PointBuffer(points.size());
+        for (Point p : points) {
+            buffer.accept(p.x, p.y);
+        }
         this.points = points;
         this.executionTime = executionTime;
     }
 
+    // Точки без упаковки в объекты
+    public PointBuffer getBuffer() {
+        return buffer;
+    }
+
+    // Список создаётся при первом обращении
     public List<Point> getPoints() {
+        if (points == null) {
+            points = buffer.toPoints();
+        }
         return points;
     }
 
@@ -1,13 +1,75 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.Rectangle;
+import java.util.Arrays;
 
+// Растровые алгоритмы в двух вариантах:
+//   - с AlgorithmResult: точки собираются в новый PointBuffer, замеряется время;
+//   - с PixelSink: точки передаются вызывающему по одной, без выделения памяти. Для сбора
+//     точек можно передать свой PointBuffer и очищать его между вызовами.
+//
+// Варианты с PixelSink не пишут в консоль и не замеряют время. Если установлен
+// AlgorithmListener, вызов замеряется и сообщается ему вместе с числом выданных пикселей
+// (его возвращают сами алгоритмы); без наблюдателя остаётся одно чтение поля на вызов.
+//
+// Варианты с прямоугольником clip (в клетках) выдают только точки внутри него — ровно те же,
+// что дал бы вариант без отсечения. Для отрезков диапазон шагов, который может попасть в
+// прямоугольник, находится отсечением Лянга — Барски, а состояние алгоритма на первом шаге
+// вычисляется сразу; ЦДА прокручивает свои float-приращения до первого шага без вывода,
+// чтобы накопленная погрешность совпала, и останавливается, выйдя из прямоугольника.
+// У окружности отбрасываются октанты, не задевающие прямоугольник, а перебор
+// ограничивается шагами видимых октантов.
+//
+// Заливки (круг, многоугольник) выдают горизонтальные отрезки строк в SpanSink — каждая
+// строка фигуры ровно один раз.
+//
+// Сглаженные отрезки и окружности (Ву) выдают клетки с покрытием в CoverageSink; внутренние
+// циклы целочисленные, без float и округления на каждом шаге.
 public class Algorithms {
 
+    private static volatile AlgorithmListener listener;
+
+    // null отключает наблюдение
+    public static void setListener(AlgorithmListener newListener) {
+        listener = newListener;
+    }
+
+    public static AlgorithmListener getListener() {
+        return listener;
+    }
+
     public static AlgorithmResult stepAlgorithm(int x0, int y0, int x1, int y1) {
-        System.out.println("Выполняется пошаговый алгоритм");
-        List<Point> points = new ArrayList<>();
+        PointBuffer points = new PointBuffer();
         long startTime = System.nanoTime();
 
+        stepAlgorithm(x0, y0, x1, y1, points);
+
+        long endTime = System.nanoTime();
+        long duration = (endTime - startTime) / 1000;
+        return new AlgorithmResult(points, duration);
+    }
+
+    public static void stepAlgorithm(int x0, int y0, int x1, int y1, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeStep(x0, y0, x1, y1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeStep(x0, y0, x1, y1, sink);
+            l.onCall("step", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    public static void stepAlgorithm(int x0, int y0, int x1, int y1, Rectangle clip, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeStep(x0, y0, x1, y1, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeStep(x0, y0, x1, y1, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+            l.onCall("step", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    private static int rasterizeStep(int x0, int y0, int x1, int y1, PixelSink sink) {
         int dx = Math.abs(x1 - x0);
         int dy = Math.abs(y1 - y0);
         int sx = x0 < x1 ? 1 : -1;
@@ -16,10 +78,9 @@ public class Algorithms {
         int x = x0, y = y0;
 
         if (dx > dy) {
-            System.out.println("x - доминирующая ось");
             int error = dx / 2;
             for (int i = 0; i <= dx; i++) {
-                points.add(new Point(x, y));
+                sink.accept(x, y);
                 x += sx;
                 error -= dy;
                 if (error < 0) {
@@ -27,11 +88,11 @@ public class Algorithms {
                     error += dx;
                 }
             }
+            return dx + 1;
         } else {
-            System.out.println("y - доминирующая ось");
             int error = dy / 2;
             for (int i = 0; i <= dy; i++) {
-                points.add(new Point(x, y));
+                sink.accept(x, y);
                 y += sy;
                 error -= dx;
                 if (error < 0) {
@@ -39,17 +100,99 @@ public class Algorithms {
                     error += dy;
                 }
             }
+            return dy + 1;
+        }
+    }
+
+    private static int rasterizeStep(int x0, int y0, int x1, int y1,
+                                     int minX, int minY, int maxX, int maxY, PixelSink sink) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+
+        // Точка шага i отстоит от отрезка по второй оси меньше чем на клетку
+        long range = clipSteps(x0, y0, x1, y1, Math.max(dx, dy), minX, minY, maxX, maxY, 1);
+        if (range < 0) {
+            return 0;
         }
+        int first = (int) (range >>> 32);
+        int last = (int) range;
+        int pixels = 0;
+
+        if (dx > dy) {
+            // После i шагов ошибка dx / 2 - i * dy + j * dx лежит в [0, dx), где j — шаги по y
+            long j = Math.max(0, ceilDiv((long) first * dy - dx / 2, dx));
+            int x = x0 + sx * first;
+            int y = (int) (y0 + sy * j);
+            int error = (int) (dx / 2 - (long) first * dy + j * dx);
+            for (int i = first; i <= last; i++) {
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    sink.accept(x, y);
+                    pixels++;
+                }
+                x += sx;
+                error -= dy;
+                if (error < 0) {
+                    y += sy;
+                    error += dx;
+                }
+            }
+        } else {
+            long j = dy == 0 ? 0 : Math.max(0, ceilDiv((long) first * dx - dy / 2, dy));
+            int x = (int) (x0 + sx * j);
+            int y = y0 + sy * first;
+            int error = (int) (dy / 2 - (long) first * dx + j * dy);
+            for (int i = first; i <= last; i++) {
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    sink.accept(x, y);
+                    pixels++;
+                }
+                y += sy;
+                error -= dx;
+                if (error < 0) {
+                    x += sx;
+                    error += dy;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    public static AlgorithmResult ddaAlgorithm(int x0, int y0, int x1, int y1) {
+        PointBuffer points = new PointBuffer();
+        long startTime = System.nanoTime();
+
+        ddaAlgorithm(x0, y0, x1, y1, points);
 
         long endTime = System.nanoTime();
         long duration = (endTime - startTime) / 1000;
         return new AlgorithmResult(points, duration);
     }
 
-    public static AlgorithmResult ddaAlgorithm(int x0, int y0, int x1, int y1) {
-        List<Point> points = new ArrayList<>();
-        long startTime = System.nanoTime();
+    public static void ddaAlgorithm(int x0, int y0, int x1, int y1, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeDDA(x0, y0, x1, y1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeDDA(x0, y0, x1, y1, sink);
+            l.onCall("dda", pixels, System.nanoTime() - startTime);
+        }
+    }
 
+    public static void ddaAlgorithm(int x0, int y0, int x1, int y1, Rectangle clip, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeDDA(x0, y0, x1, y1, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeDDA(x0, y0, x1, y1, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+            l.onCall("dda", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    private static int rasterizeDDA(int x0, int y0, int x1, int y1, PixelSink sink) {
         int dx = x1 - x0;
         int dy = y1 - y0;
         int steps = Math.max(Math.abs(dx), Math.abs(dy));
@@ -61,20 +204,98 @@ public class Algorithms {
         float y = y0;
 
         for (int i = 0; i <= steps; i++) {
-            points.add(new Point(Math.round(x), Math.round(y)));
+            sink.accept(Math.round(x), Math.round(y));
+            x += xIncrement;
+            y += yIncrement;
+        }
+        return steps + 1;
+    }
+
+    private static int rasterizeDDA(int x0, int y0, int x1, int y1,
+                                    int minX, int minY, int maxX, int maxY, PixelSink sink) {
+        int dx = x1 - x0;
+        int dy = y1 - y0;
+        int steps = Math.max(Math.abs(dx), Math.abs(dy));
+
+        float xIncrement = dx / (float) steps;
+        float yIncrement = dy / (float) steps;
+
+        // Накопленные float-координаты уходят от точных на каждом сложении не больше чем на
+        // полшага сетки float у самого значения и у приращения; поле берётся с запасом вдвое
+        double drift = 0;
+        if (steps > 0) {
+            float magnitude = 2f * Math.max(Math.max(Math.abs((float) x0), Math.abs((float) x1)),
+                Math.max(Math.abs((float) y0), Math.abs((float) y1))) + 2f;
+            drift = steps * ((double) Math.ulp(magnitude) + Math.max(Math.ulp(xIncrement), Math.ulp(yIncrement)));
+        }
+        long range = clipSteps(x0, y0, x1, y1, steps, minX, minY, maxX, maxY, 1 + drift);
+        if (range < 0) {
+            return 0;
+        }
+        int first = (int) (range >>> 32);
+        int last = (int) range;
+        int pixels = 0;
+
+        float x = x0;
+        float y = y0;
+
+        // Те же сложения, что и без отсечения, чтобы совпала погрешность
+        for (int i = 0; i < first; i++) {
+            x += xIncrement;
+            y += yIncrement;
+        }
+        // Сумма с приращением одного знака монотонна и в float, поэтому после выхода за
+        // прямоугольник в сторону движения точки в него уже не вернутся
+        for (int i = first; i <= last; i++) {
+            int px = Math.round(x);
+            int py = Math.round(y);
+            if (px >= minX && px <= maxX && py >= minY && py <= maxY) {
+                sink.accept(px, py);
+                pixels++;
+            } else if ((xIncrement > 0 && px > maxX) || (xIncrement < 0 && px < minX)
+                || (yIncrement > 0 && py > maxY) || (yIncrement < 0 && py < minY)) {
+                break;
+            }
             x += xIncrement;
             y += yIncrement;
         }
+        return pixels;
+    }
+
+    public static AlgorithmResult bresenhamLine(int x0, int y0, int x1, int y1) {
+        PointBuffer points = new PointBuffer();
+        long startTime = System.nanoTime();
+
+        bresenhamLine(x0, y0, x1, y1, points);
 
         long endTime = System.nanoTime();
         long duration = (endTime - startTime) / 1000;
         return new AlgorithmResult(points, duration);
     }
 
-    public static AlgorithmResult bresenhamLine(int x0, int y0, int x1, int y1) {
-        List<Point> points = new ArrayList<>();
-        long startTime = System.nanoTime();
+    public static void bresenhamLine(int x0, int y0, int x1, int y1, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeBresenhamLine(x0, y0, x1, y1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeBresenhamLine(x0, y0, x1, y1, sink);
+            l.onCall("bresenhamLine", pixels, System.nanoTime() - startTime);
+        }
+    }
 
+    public static void bresenhamLine(int x0, int y0, int x1, int y1, Rectangle clip, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeBresenhamLine(x0, y0, x1, y1, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeBresenhamLine(x0, y0, x1, y1, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+            l.onCall("bresenhamLine", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    private static int rasterizeBresenhamLine(int x0, int y0, int x1, int y1, PixelSink sink) {
         int dx = Math.abs(x1 - x0);
         int dy = Math.abs(y1 - y0);
         int sx = x0 < x1 ? 1 : -1;
@@ -82,7 +303,7 @@ public class Algorithms {
         int err = dx - dy;
 
         while (true) {
-            points.add(new Point(x0, y0));
+            sink.accept(x0, y0);
             if (x0 == x1 && y0 == y1) break;
 
             int e2 = 2 * err;
@@ -95,21 +316,135 @@ public class Algorithms {
                 y0 += sy;
             }
         }
+        return Math.max(dx, dy) + 1;
+    }
+
+    private static int rasterizeBresenhamLine(int x0, int y0, int x1, int y1,
+                                              int minX, int minY, int maxX, int maxY, PixelSink sink) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+
+        long range = clipSteps(x0, y0, x1, y1, Math.max(dx, dy), minX, minY, maxX, maxY, 1);
+        if (range < 0) {
+            return 0;
+        }
+        int first = (int) (range >>> 32);
+        int last = (int) range;
+
+        // Состояние цикла после first шагов: ошибка меняется на -dy за шаг по x и на +dx за шаг по y
+        long minorSteps = bresenhamMinorSteps(Math.max(dx, dy), Math.min(dx, dy), first);
+        long stepsX = dx >= dy ? first : minorSteps;
+        long stepsY = dx >= dy ? minorSteps : first;
+        int x = (int) (x0 + sx * stepsX);
+        int y = (int) (y0 + sy * stepsY);
+        int err = (int) ((long) dx - dy - stepsX * dy + stepsY * dx);
+        int pixels = 0;
+
+        for (int i = first; i <= last; i++) {
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                sink.accept(x, y);
+                pixels++;
+            }
+            int e2 = 2 * err;
+            if (e2 > -dy) {
+                err -= dy;
+                x += sx;
+            }
+            if (e2 < dx) {
+                err += dx;
+                y += sy;
+            }
+        }
+        return pixels;
+    }
+
+    // Число шагов по второй оси за первые i шагов bresenhamLine (dm — длина по главной оси,
+    // dn — по второй). На шаге k делается шаг по второй оси, если (2j + 1) dm < 2 dn (k + 1),
+    // где j — уже сделанные шаги; отсюда j(i) = ceil((2 dn i + dm) / (2 dm)) - 1
+    static long bresenhamMinorSteps(long dm, long dn, long i) {
+        return dm == 0 ? 0 : (2 * dn * i + dm - 1) / (2 * dm);
+    }
+
+    // Отсечение Лянга — Барски: шаги [first, last] из 0..steps, на которых точка отрезка
+    // (x0, y0) + i / steps * (x1 - x0, y1 - y0) лежит в прямоугольнике, расширенном на margin
+    // клеток. Упакованы как first << 32 | last; -1, если таких шагов нет
+    private static long clipSteps(int x0, int y0, int x1, int y1, int steps,
+                                  int minX, int minY, int maxX, int maxY, double margin) {
+        if (minX > maxX || minY > maxY) {
+            return -1;
+        }
+        double dx = (double) x1 - x0;
+        double dy = (double) y1 - y0;
+        double t0 = 0, t1 = 1;
+        // Границы по очереди: левая, правая, верхняя, нижняя; точка внутри, пока p * t <= q
+        for (int k = 0; k < 4; k++) {
+            double p = k == 0 ? -dx : k == 1 ? dx : k == 2 ? -dy : dy;
+            double q = k == 0 ? x0 - (minX - margin) : k == 1 ? (maxX + margin) - x0
+                : k == 2 ? y0 - (minY - margin) : (maxY + margin) - y0;
+            if (p == 0) {
+                if (q < 0) return -1;
+            } else {
+                double t = q / p;
+                if (p < 0) {
+                    if (t > t1) return -1;
+                    t0 = Math.max(t0, t);
+                } else {
+                    if (t < t0) return -1;
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+        long first = Math.max(0, (long) Math.floor(t0 * steps));
+        long last = Math.min(steps, (long) Math.ceil(t1 * steps));
+        return first > last ? -1 : first << 32 | last;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return Math.floorDiv(a + b - 1, b);
+    }
+
+    public static AlgorithmResult bresenhamCircle(int xc, int yc, int r) {
+        PointBuffer points = new PointBuffer();
+        long startTime = System.nanoTime();
+
+        bresenhamCircle(xc, yc, r, points);
 
         long endTime = System.nanoTime();
         long duration = (endTime - startTime) / 1000;
         return new AlgorithmResult(points, duration);
     }
 
-    public static AlgorithmResult bresenhamCircle(int xc, int yc, int r) {
-        List<Point> points = new ArrayList<>();
-        long startTime = System.nanoTime();
+    public static void bresenhamCircle(int xc, int yc, int r, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeBresenhamCircle(xc, yc, r, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeBresenhamCircle(xc, yc, r, sink);
+            l.onCall("bresenhamCircle", pixels, System.nanoTime() - startTime);
+        }
+    }
 
+    public static void bresenhamCircle(int xc, int yc, int r, Rectangle clip, PixelSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeBresenhamCircle(xc, yc, r, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeBresenhamCircle(xc, yc, r, clip.x, clip.y, clip.x + clip.width - 1, clip.y + clip.height - 1, sink);
+            l.onCall("bresenhamCircle", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    private static int rasterizeBresenhamCircle(int xc, int yc, int r, PixelSink sink) {
         int x = 0;
         int y = r;
         int d = 3 - 2 * r;
 
-        drawCirclePoints(points, xc, yc, x, y);
+        drawCirclePoints(sink, xc, yc, x, y);
+        int pixels = 8;
 
         while (y >= x) {
             x++;
@@ -119,22 +454,434 @@ public class Algorithms {
             } else {
                 d = d + 4 * x + 6;
             }
-            drawCirclePoints(points, xc, yc, x, y);
+            drawCirclePoints(sink, xc, yc, x, y);
+            pixels += 8;
         }
+        return pixels;
+    }
 
-        long endTime = System.nanoTime();
-        long duration = (endTime - startTime) / 1000;
-        return new AlgorithmResult(points, duration);
+    // Октант o задаётся знаками и перестановкой (x, y) в drawCirclePoints: у октантов 0-3 шаг x
+    // идёт вдоль оси X, у 4-7 — вдоль оси Y. Для каждого видимого октанта шаги x, на которых
+    // его точка может попасть в прямоугольник, известны заранее, а y на них не возрастает;
+    // перебор ведётся от первого такого шага до последнего, пока y не опустится ниже всех
+    // видимых октантов. Шаги до начала только обновляют состояние, без вывода точек
+    private static int rasterizeBresenhamCircle(int xc, int yc, int r,
+                                                int minX, int minY, int maxX, int maxY, PixelSink sink) {
+        if (minX > maxX || minY > maxY) {
+            return 0;
+        }
+        if (r < 0) {
+            return drawCirclePoints(sink, xc, yc, 0, r, minX, minY, maxX, maxY);
+        }
+
+        // Пока y >= x, x не больше r / sqrt(2) + 1, а y не меньше r / sqrt(2) - 1
+        long lastX = (long) Math.ceil(r / Math.sqrt(2)) + 2;
+        long lowestY = (long) Math.floor(r / Math.sqrt(2)) - 2;
+        long startX = Long.MAX_VALUE, endX = Long.MIN_VALUE, stopY = Long.MAX_VALUE;
+        for (int o = 0; o < 8; o++) {
+            boolean alongX = o < 4;
+            boolean xPositive = (o & 1) == 0;
+            boolean yPositive = (o & 2) == 0;
+            // Диапазоны смещений от центра по осям X и Y, в которых точка октанта видна
+            long xFrom = xPositive ? (long) minX - xc : (long) xc - maxX;
+            long xTo = xPositive ? (long) maxX - xc : (long) xc - minX;
+            long yFrom = yPositive ? (long) minY - yc : (long) yc - maxY;
+            long yTo = yPositive ? (long) maxY - yc : (long) yc - minY;
+            long stepFrom = Math.max(0, alongX ? xFrom : yFrom);
+            long stepTo = Math.min(lastX, alongX ? xTo : yTo);
+            long valueFrom = alongX ? yFrom : xFrom;
+            long valueTo = Math.min(r, alongX ? yTo : xTo);
+            if (stepFrom > stepTo || valueTo < Math.max(valueFrom, lowestY)) {
+                continue;
+            }
+            startX = Math.min(startX, stepFrom);
+            endX = Math.max(endX, stepTo);
+            stopY = Math.min(stopY, valueFrom);
+        }
+        if (startX > endX) {
+            return 0;
+        }
+
+        int x = 0;
+        int y = r;
+        int d = 3 - 2 * r;
+        int pixels = 0;
+        if (startX == 0) {
+            pixels += drawCirclePoints(sink, xc, yc, x, y, minX, minY, maxX, maxY);
+        }
+
+        while (y >= x) {
+            x++;
+            if (d > 0) {
+                y--;
+                d = d + 4 * (x - y) + 10;
+            } else {
+                d = d + 4 * x + 6;
+            }
+            if (x > endX || y < stopY) {
+                break;
+            }
+            if (x >= startX) {
+                pixels += drawCirclePoints(sink, xc, yc, x, y, minX, minY, maxX, maxY);
+            }
+        }
+        return pixels;
+    }
+
+    private static int drawCirclePoints(PixelSink sink, int xc, int yc, int x, int y,
+                                        int minX, int minY, int maxX, int maxY) {
+        return drawPoint(sink, xc + x, yc + y, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc - x, yc + y, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc + x, yc - y, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc - x, yc - y, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc + y, yc + x, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc - y, yc + x, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc + y, yc - x, minX, minY, maxX, maxY)
+            + drawPoint(sink, xc - y, yc - x, minX, minY, maxX, maxY);
+    }
+
+    private static int drawPoint(PixelSink sink, int x, int y, int minX, int minY, int maxX, int maxY) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return 0;
+        }
+        sink.accept(x, y);
+        return 1;
+    }
+
+    private static void drawCirclePoints(PixelSink sink, int xc, int yc, int x, int y) {
+        sink.accept(xc + x, yc + y);
+        sink.accept(xc - x, yc + y);
+        sink.accept(xc + x, yc - y);
+        sink.accept(xc - x, yc - y);
+        sink.accept(xc + y, yc + x);
+        sink.accept(xc - y, yc + x);
+        sink.accept(xc + y, yc - x);
+        sink.accept(xc - y, yc - x);
+    }
+
+    public static void filledCircle(int xc, int yc, int r, SpanSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeFilledCircle(xc, yc, r, sink);
+        } else {
+            long startTime = System.nanoTime();
+            long pixels = rasterizeFilledCircle(xc, yc, r, sink);
+            l.onCall("filledCircle", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    // Круг, ограниченный окружностью bresenhamCircle: в каждой строке — от самой левой до
+    // самой правой её точки. Тот же цикл средней точки; точка (x, y) задаёт строки yc ± y
+    // полушириной x и строки yc ± x полушириной y. Строка yc ± y выдаётся, когда y вот-вот
+    // уменьшится (x для неё наибольший). Строка yc ± x нужна, только если x меньше последнего
+    // y цикла (иначе её перекрывает более широкая строка первого вида); при x < y - 2 это
+    // заведомо так, а две-три строки у диагонали откладываются до конца цикла
+    private static long rasterizeFilledCircle(int xc, int yc, int r, SpanSink sink) {
+        if (r < 0) {
+            return 0;
+        }
+        int x = 0;
+        int y = r;
+        int d = 3 - 2 * r;
+        long pixels = 0;
+        int tailX = -1, tailY0 = 0, tailY1 = 0;
+
+        while (true) {
+            boolean last = y < x;
+            if (x < y - 2) {
+                pixels += circleRows(sink, xc, yc, x, y);
+            } else if (tailX < 0) {
+                tailX = x;
+                tailY0 = y;
+            } else if (x == tailX + 1) {
+                tailY1 = y;
+            }
+
+            int nextY = y;
+            if (!last && d > 0) {
+                nextY--;
+            }
+            if (last || nextY != y) {
+                pixels += circleRows(sink, xc, yc, y, x);
+            }
+            if (last) {
+                break;
+            }
+
+            x++;
+            if (d > 0) {
+                y--;
+                d = d + 4 * (x - y) + 10;
+            } else {
+                d = d + 4 * x + 6;
+            }
+        }
+
+        // Отложенные строки yc ± x, если последний y оказался больше их x
+        if (tailX < y) {
+            pixels += circleRows(sink, xc, yc, tailX, tailY0);
+        }
+        if (tailX + 1 < y) {
+            pixels += circleRows(sink, xc, yc, tailX + 1, tailY1);
+        }
+        return pixels;
+    }
+
+    // Строки yc - offset и yc + offset (одна при offset == 0) от xc - halfWidth до xc + halfWidth
+    private static long circleRows(SpanSink sink, int xc, int yc, int offset, int halfWidth) {
+        sink.accept(yc - offset, xc - halfWidth, xc + halfWidth);
+        if (offset == 0) {
+            return 2L * halfWidth + 1;
+        }
+        sink.accept(yc + offset, xc - halfWidth, xc + halfWidth);
+        return 2 * (2L * halfWidth + 1);
+    }
+
+    public static void fillPolygon(int[] xs, int[] ys, int count, SpanSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizePolygon(xs, ys, count, sink);
+        } else {
+            long startTime = System.nanoTime();
+            long pixels = rasterizePolygon(xs, ys, count, sink);
+            l.onCall("fillPolygon", pixels, System.nanoTime() - startTime);
+        }
     }
 
-    private static void drawCirclePoints(List<Point> points, int xc, int yc, int x, int y) {
-        points.add(new Point(xc + x, yc + y));
-        points.add(new Point(xc - x, yc + y));
-        points.add(new Point(xc + x, yc - y));
-        points.add(new Point(xc - x, yc - y));
-        points.add(new Point(xc + y, yc + x));
-        points.add(new Point(xc - y, yc + x));
-        points.add(new Point(xc + y, yc - x));
-        points.add(new Point(xc - y, yc - x));
+    // Построчная заливка многоугольника с вершинами (xs[i], ys[i]) по правилу чёт-нечет.
+    // Закрашиваются клетки, центр которых внутри многоугольника; на границе — левые и верхние
+    // (строка y принадлежит ребру при yTop <= y < yBottom, отрезок строки — от ceil левого
+    // пересечения до ceil правого минус один), так что соседние многоугольники с общим
+    // ребром не перекрываются.
+    //
+    // Рёбра сортируются по верхнему y (таблица рёбер); при переходе на строку в список
+    // активных рёбер добавляются начинающиеся на ней и удаляются закончившиеся, а сам список
+    // досортировывается вставками по x пересечения — между соседними строками порядок
+    // меняется мало. Пересечение считается точно в целых: ceil((xTop dy + (y - yTop) dx) / dy)
+    private static long rasterizePolygon(int[] xs, int[] ys, int count, SpanSink sink) {
+        if (count < 3) {
+            return 0;
+        }
+        // Рёбра без горизонтальных: верх, низ, x верхней вершины, dx, dy > 0
+        int[] top = new int[count];
+        int[] bottom = new int[count];
+        int[] topX = new int[count];
+        int[] dx = new int[count];
+        int[] dy = new int[count];
+        long[] order = new long[count];
+        int edges = 0;
+        for (int i = 0; i < count; i++) {
+            int j = i + 1 == count ? 0 : i + 1;
+            if (ys[i] == ys[j]) continue;
+            int a = ys[i] < ys[j] ? i : j;
+            int b = a == i ? j : i;
+            top[edges] = ys[a];
+            bottom[edges] = ys[b];
+            topX[edges] = xs[a];
+            dx[edges] = xs[b] - xs[a];
+            dy[edges] = ys[b] - ys[a];
+            order[edges] = (long) ys[a] << 32 | edges;
+            edges++;
+        }
+        if (edges == 0) {
+            return 0;
+        }
+        Arrays.sort(order, 0, edges);
+
+        int[] active = new int[edges];
+        long[] crossing = new long[edges];
+        int activeCount = 0;
+        int next = 0;
+        long pixels = 0;
+        int y = (int) (order[0] >> 32);
+
+        while (activeCount > 0 || next < edges) {
+            if (activeCount == 0) {
+                y = Math.max(y, (int) (order[next] >> 32));
+            }
+            while (next < edges && (int) (order[next] >> 32) == y) {
+                active[activeCount++] = (int) order[next++];
+            }
+
+            // Закончившиеся рёбра удаляются, для остальных считается пересечение со строкой
+            int kept = 0;
+            for (int k = 0; k < activeCount; k++) {
+                int e = active[k];
+                if (y < bottom[e]) {
+                    active[kept] = e;
+                    crossing[kept] = ceilDiv((long) topX[e] * dy[e] + (long) (y - top[e]) * dx[e], dy[e]);
+                    kept++;
+                }
+            }
+            activeCount = kept;
+
+            for (int k = 1; k < activeCount; k++) {
+                int e = active[k];
+                long c = crossing[k];
+                int m = k - 1;
+                while (m >= 0 && crossing[m] > c) {
+                    active[m + 1] = active[m];
+                    crossing[m + 1] = crossing[m];
+                    m--;
+                }
+                active[m + 1] = e;
+                crossing[m + 1] = c;
+            }
+
+            for (int k = 0; k + 1 < activeCount; k += 2) {
+                long x0 = crossing[k];
+                long x1 = crossing[k + 1] - 1;
+                if (x0 <= x1) {
+                    sink.accept(y, (int) x0, (int) x1);
+                    pixels += x1 - x0 + 1;
+                }
+            }
+            y++;
+        }
+        return pixels;
+    }
+
+    public static void wuLine(int x0, int y0, int x1, int y1, CoverageSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeWuLine(x0, y0, x1, y1, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeWuLine(x0, y0, x1, y1, sink);
+            l.onCall("wuLine", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    // Отрезок Ву с фиксированной точкой: за шаг по главной оси дробная часть положения по второй
+    // оси растёт на dn / dm, хранимые как 32-битная дробь (ошибка не больше dm / 2^32 клетки,
+    // меньше тысячной для отрезков до миллиона клеток). Переполнение дроби — шаг по второй оси,
+    // старшие 8 бит дроби — покрытие соседней клетки, остаток до 255 — основной. Концы отрезка
+    // в центрах клеток закрыты полностью
+    private static int rasterizeWuLine(int x0, int y0, int x1, int y1, CoverageSink sink) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+
+        sink.accept(x0, y0, 255);
+        if (dx == 0 && dy == 0) {
+            return 1;
+        }
+        int pixels = 2;
+        long one = 1L << 32;
+        long fraction = 0;
+        int x = x0, y = y0;
+
+        if (dx >= dy) {
+            long step = ((long) dy << 32) / dx;
+            for (int i = 1; i < dx; i++) {
+                fraction += step;
+                if (fraction >= one) {
+                    fraction -= one;
+                    y += sy;
+                }
+                x += sx;
+                int coverage = (int) (fraction >>> 24);
+                if (coverage != 255) {
+                    sink.accept(x, y, 255 - coverage);
+                    pixels++;
+                }
+                if (coverage != 0) {
+                    sink.accept(x, y + sy, coverage);
+                    pixels++;
+                }
+            }
+        } else {
+            long step = ((long) dx << 32) / dy;
+            for (int i = 1; i < dy; i++) {
+                fraction += step;
+                if (fraction >= one) {
+                    fraction -= one;
+                    x += sx;
+                }
+                y += sy;
+                int coverage = (int) (fraction >>> 24);
+                if (coverage != 255) {
+                    sink.accept(x, y, 255 - coverage);
+                    pixels++;
+                }
+                if (coverage != 0) {
+                    sink.accept(x + sx, y, coverage);
+                    pixels++;
+                }
+            }
+        }
+
+        sink.accept(x1, y1, 255);
+        return pixels;
+    }
+
+    public static void wuCircle(int xc, int yc, int r, CoverageSink sink) {
+        AlgorithmListener l = listener;
+        if (l == null) {
+            rasterizeWuCircle(xc, yc, r, sink);
+        } else {
+            long startTime = System.nanoTime();
+            int pixels = rasterizeWuCircle(xc, yc, r, sink);
+            l.onCall("wuCircle", pixels, System.nanoTime() - startTime);
+        }
+    }
+
+    // Окружность Ву: для каждого x октанта 0 <= x <= y целая часть y = floor(sqrt(r^2 - x^2))
+    // ведётся убыванием (y^2 <= r^2 - x^2 < (y + 1)^2), а дробная берётся линейно между
+    // квадратами: (r^2 - x^2 - y^2) / (2y + 1), в 255-х долях. Внутренняя клетка получает
+    // остаток покрытия, внешняя (y + 1) — дробь. Все вычисления в long, без sqrt на шаг
+    private static int rasterizeWuCircle(int xc, int yc, int r, CoverageSink sink) {
+        if (r < 0) {
+            return 0;
+        }
+        long rr = (long) r * r;
+        int x = 0;
+        int y = r;
+        int pixels = 0;
+
+        while (x <= y) {
+            long remaining = rr - (long) x * x;
+            while ((long) y * y > remaining) {
+                y--;
+            }
+            if (y < x) {
+                break;
+            }
+            int coverage = (int) ((remaining - (long) y * y) * 255 / (2L * y + 1));
+            pixels += drawWuCirclePoints(sink, xc, yc, x, y, 255 - coverage);
+            if (coverage != 0) {
+                pixels += drawWuCirclePoints(sink, xc, yc, x, y + 1, coverage);
+            }
+            x++;
+        }
+        return pixels;
+    }
+
+    // Восемь отражений клетки (a, b) первого октанта (0 <= a <= b) без повторов на осях и диагонали
+    private static int drawWuCirclePoints(CoverageSink sink, int xc, int yc, int a, int b, int coverage) {
+        int pixels = drawWuQuadrants(sink, xc, yc, a, b, coverage);
+        if (a != b) {
+            pixels += drawWuQuadrants(sink, xc, yc, b, a, coverage);
+        }
+        return pixels;
+    }
+
+    private static int drawWuQuadrants(CoverageSink sink, int xc, int yc, int a, int b, int coverage) {
+        sink.accept(xc + a, yc + b, coverage);
+        int pixels = 1;
+        if (a != 0) {
+            sink.accept(xc - a, yc + b, coverage);
+            pixels++;
+        }
+        if (b != 0) {
+            sink.accept(xc + a, yc - b, coverage);
+            pixels++;
+            if (a != 0) {
+                sink.accept(xc - a, yc - b, coverage);
+                pixels++;
+            }
+        }
+        return pixels;
     }
 }
\ No newline at end of file
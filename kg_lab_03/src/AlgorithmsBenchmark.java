@@ -0,0 +1,339 @@
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Замеры растровых алгоритмов без вывода в консоль и без таймера внутри алгоритмов.
+//
+// Отрезки — по длинам и углам наклона (от горизонтали до вертикали и обратный наклон),
+// окружности — по радиусам. Сглаженные алгоритмы Ву (wu — отрезки, wuCircle — окружности)
+// измеряются на тех же случаях. Каждый случай измеряется в четырёх режимах:
+//   sink   — приёмник-контрольная сумма (результат используется, JIT не может выбросить работу);
+//   buffer — один PointBuffer, очищаемый перед каждым вызовом;
+//   list   — новый буфер и список Point на каждый вызов, как прежний AlgorithmResult.getPoints();
+//   metrics — как sink, но с установленным AlgorithmMetrics (цена наблюдения).
+// Для Ву — только sink и metrics: PointBuffer не принимает покрытие.
+//
+// Каждая пара алгоритм/режим измеряется в отдельном процессе JVM. После прогрева вызовы
+// группируются в пачки примерно по BATCH_NANOS; берётся медиана и минимум по пачкам.
+// Выделения памяти считаются по ThreadMXBean на текущем потоке.
+// Результаты печатаются таблицей и, если указан файл, пишутся в CSV для сравнения версий.
+//
+// Запуск: java AlgorithmsBenchmark [--csv файл] [--quick]
+public class AlgorithmsBenchmark {
+
+    private static final long BATCH_NANOS = 20_000_000L;
+    private static final long MIN_WARMUP_CALLS = 50_000;
+    private static final long MIN_WARMUP_PIXELS = 50_000_000;
+
+    private static final int[] LENGTHS = {10, 100, 1000, 10_000, 100_000};
+    private static final int[] ANGLES = {0, 22, 45, 67, 90, 135};
+    private static final int[] RADII = {8, 64, 512, 4096};
+
+    private static final String[] ALGORITHMS = {"step", "dda", "bresenham", "wu", "circle", "wuCircle"};
+    private static final String[] MODES = {"sink", "buffer", "list", "metrics"};
+
+    private interface Line {
+        void draw(int x0, int y0, int x1, int y1, PixelSink sink);
+    }
+
+    private interface Shape {
+        void draw(PixelSink sink);
+    }
+
+    private interface CoverageShape {
+        void draw(CoverageSink sink);
+    }
+
+    // Аналог Blackhole: сумма зависит от каждой точки (и покрытия) и читается после замера
+    private static class ChecksumSink implements PixelSink, CoverageSink {
+        long sum;
+
+        @Override
+        public void accept(int x, int y) {
+            sum += x * 31L + y;
+        }
+
+        @Override
+        public void accept(int x, int y, int coverage) {
+            sum += x * 31L + y + coverage;
+        }
+    }
+
+    private static volatile long blackhole;
+
+    private final int warmupBatches;
+    private final int measuredBatches;
+    private final List<String> rows = new ArrayList<>();
+
+    private AlgorithmsBenchmark(boolean quick) {
+        this.warmupBatches = quick ? 2 : 5;
+        this.measuredBatches = quick ? 3 : 10;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String csv = null;
+        String only = null;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--csv") && i + 1 < args.length) {
+                csv = args[++i];
+            } else if (args[i].equals("--only") && i + 1 < args.length) {
+                only = args[++i];
+            } else if (args[i].equals("--quick")) {
+                quick = true;
+            } else {
+                throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        // Дочерний процесс: одна пара алгоритм/режим, строки CSV в stdout
+        if (only != null) {
+            String[] parts = only.split("/");
+            AlgorithmsBenchmark benchmark = new AlgorithmsBenchmark(quick);
+            benchmark.run(parts[0], parts[1]);
+            for (String row : benchmark.rows) {
+                System.out.println(row);
+            }
+            return;
+        }
+
+        System.out.printf(Locale.ROOT, "%-12s %-7s %-22s %8s %12s %10s %12s%n",
+            "алгоритм", "режим", "случай", "пикселей", "нс/вызов", "нс/пиксель", "байт/вызов");
+        List<String> rows = new ArrayList<>();
+        for (String algorithm : ALGORITHMS) {
+            for (String mode : MODES) {
+                for (String row : fork(algorithm + "/" + mode, quick)) {
+                    String[] f = row.split(",");
+                    System.out.printf(Locale.ROOT, "%-12s %-7s %-22s %8s %12s %10s %12s%n",
+                        f[0], f[1], f[2], f[3], f[4], f[6], f[7]);
+                    rows.add(row);
+                }
+            }
+        }
+
+        if (csv != null) {
+            writeCsv(csv, rows);
+            System.out.println("Результаты записаны в " + csv);
+        }
+    }
+
+    // Каждая пара алгоритм/режим — в отдельной JVM, как форки JMH: иначе профиль вызовов
+    // sink.accept, набранный на одном приёмнике, искажает замеры следующего
+    private static List<String> fork(String only, boolean quick) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+            Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            AlgorithmsBenchmark.class.getName(), "--only", only));
+        if (quick) {
+            command.add("--quick");
+        }
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        List<String> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(line);
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Замер " + only + " завершился с ошибкой");
+        }
+        return rows;
+    }
+
+    private void run(String algorithm, String mode) {
+        switch (algorithm) {
+            case "step":
+                lines(algorithm, mode, Algorithms::stepAlgorithm);
+                break;
+            case "dda":
+                lines(algorithm, mode, Algorithms::ddaAlgorithm);
+                break;
+            case "bresenham":
+                lines(algorithm, mode, Algorithms::bresenhamLine);
+                break;
+            case "wu":
+                for (int length : LENGTHS) {
+                    for (int angle : ANGLES) {
+                        int x1 = endX(length, angle), y1 = endY(length, angle);
+                        coverage(algorithm, mode, "len=" + length + " angle=" + angle, sink -> Algorithms.wuLine(0, 0, x1, y1, sink));
+                    }
+                }
+                break;
+            case "circle":
+                for (int radius : RADII) {
+                    run(algorithm, mode, "r=" + radius, sink -> Algorithms.bresenhamCircle(0, 0, radius, sink));
+                }
+                break;
+            case "wuCircle":
+                for (int radius : RADII) {
+                    coverage(algorithm, mode, "r=" + radius, sink -> Algorithms.wuCircle(0, 0, radius, sink));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный алгоритм: " + algorithm);
+        }
+    }
+
+    private void lines(String algorithm, String mode, Line line) {
+        for (int length : LENGTHS) {
+            for (int angle : ANGLES) {
+                int x1 = endX(length, angle), y1 = endY(length, angle);
+                run(algorithm, mode, "len=" + length + " angle=" + angle, sink -> line.draw(0, 0, x1, y1, sink));
+            }
+        }
+    }
+
+    private static int endX(int length, int angle) {
+        return (int) Math.round(length * Math.cos(Math.toRadians(angle)));
+    }
+
+    private static int endY(int length, int angle) {
+        return (int) Math.round(length * Math.sin(Math.toRadians(angle)));
+    }
+
+    // Сглаженные алгоритмы: только sink и metrics, в остальных режимах строк нет
+    private void coverage(String algorithm, String mode, String caseName, CoverageShape shape) {
+        long[] counter = {0};
+        shape.draw((x, y, c) -> counter[0]++);
+        int pixels = (int) counter[0];
+
+        switch (mode) {
+            case "sink":
+                ChecksumSink checksum = new ChecksumSink();
+                measure(algorithm, mode, caseName, pixels, () -> shape.draw(checksum));
+                blackhole = checksum.sum;
+                break;
+            case "metrics":
+                Algorithms.setListener(new AlgorithmMetrics());
+                ChecksumSink observed = new ChecksumSink();
+                measure(algorithm, mode, caseName, pixels, () -> shape.draw(observed));
+                Algorithms.setListener(null);
+                blackhole = observed.sum;
+                break;
+            case "buffer":
+            case "list":
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный режим: " + mode);
+        }
+    }
+
+    private void run(String algorithm, String mode, String caseName, Shape shape) {
+        PointBuffer counter = new PointBuffer();
+        shape.draw(counter);
+        int pixels = counter.size();
+
+        switch (mode) {
+            case "sink":
+                ChecksumSink checksum = new ChecksumSink();
+                measure(algorithm, mode, caseName, pixels, () -> shape.draw(checksum));
+                blackhole = checksum.sum;
+                break;
+            case "metrics":
+                Algorithms.setListener(new AlgorithmMetrics());
+                ChecksumSink observed = new ChecksumSink();
+                measure(algorithm, mode, caseName, pixels, () -> shape.draw(observed));
+                Algorithms.setListener(null);
+                blackhole = observed.sum;
+                break;
+            case "buffer":
+                PointBuffer reused = new PointBuffer();
+                measure(algorithm, mode, caseName, pixels, () -> {
+                    reused.clear();
+                    shape.draw(reused);
+                });
+                blackhole = reused.size();
+                break;
+            case "list":
+                long[] listSizes = {0};
+                measure(algorithm, mode, caseName, pixels, () -> {
+                    PointBuffer fresh = new PointBuffer();
+                    shape.draw(fresh);
+                    listSizes[0] += fresh.toPoints().size();
+                });
+                blackhole = listSizes[0];
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный режим: " + mode);
+        }
+    }
+
+    private void measure(String algorithm, String mode, String caseName, int pixels, Runnable operation) {
+        // Прогрев по времени и не меньше MIN_WARMUP_CALLS вызовов (или MIN_WARMUP_PIXELS
+        // пикселей для длинных фигур): пачки, подобранные по ещё не скомпилированному коду,
+        // были бы слишком малы, чтобы дождаться JIT
+        long warmupEnd = System.nanoTime() + warmupBatches * BATCH_NANOS;
+        long warmupCalls = Math.min(MIN_WARMUP_CALLS, Math.max(1, MIN_WARMUP_PIXELS / Math.max(1, pixels)));
+        for (long done = 0; done < warmupCalls || System.nanoTime() < warmupEnd; done++) {
+            operation.run();
+        }
+
+        // Размер пачки — столько вызовов, сколько укладывается примерно в BATCH_NANOS
+        long calls = 1;
+        while (true) {
+            long start = System.nanoTime();
+            for (long i = 0; i < calls; i++) {
+                operation.run();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= BATCH_NANOS / 4 || calls >= 1L << 30) {
+                calls = Math.max(1, calls * BATCH_NANOS / Math.max(1, elapsed));
+                break;
+            }
+            calls *= 4;
+        }
+
+        double[] nanosPerCall = new double[measuredBatches];
+        long allocatedBefore = allocatedBytes();
+        for (int batch = 0; batch < measuredBatches; batch++) {
+            long start = System.nanoTime();
+            for (long i = 0; i < calls; i++) {
+                operation.run();
+            }
+            nanosPerCall[batch] = (System.nanoTime() - start) / (double) calls;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        double bytesPerCall = allocatedBefore < 0 ? -1 : allocated / (double) (calls * measuredBatches);
+
+        Arrays.sort(nanosPerCall);
+        double median = nanosPerCall[measuredBatches / 2];
+        double min = nanosPerCall[0];
+
+        rows.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%.1f,%.1f,%.4f,%.1f",
+            algorithm, mode, caseName, pixels, median, min, median / pixels, bytesPerCall));
+    }
+
+    private static void writeCsv(String file, List<String> rows) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("# java " + System.getProperty("java.version") + ", " + System.getProperty("os.arch")
+                + ", процессоров: " + Runtime.getRuntime().availableProcessors());
+            out.println("algorithm,mode,case,pixels,ns_per_call_median,ns_per_call_min,ns_per_pixel,bytes_per_call");
+            for (String row : rows) {
+                out.println(row);
+            }
+        }
+    }
+
+    // -1, если JVM не умеет считать выделения по потокам
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,337 @@
+import java.awt.Rectangle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Пакетная растеризация множества отрезков и окружностей (Брезенхем) в общий Framebuffer.
+//
+// Примитивы передаются упакованными массивами: отрезки — четвёрками x0, y0, x1, y1,
+// окружности — тройками xc, yc, r. Сначала примитивы раскладываются по квадратным плиткам
+// TILE_SIZE x TILE_SIZE клеток (подсчёт и префиксные суммы, без списков на плитку), затем
+// плитки растеризуются независимо: каждая пишет только в свои клетки, поэтому потоки не
+// конкурируют за пиксели и синхронизация не нужна.
+//
+// Отрезок попадает только в плитки, через которые проходит, окружность — в плитки, которые
+// пересекает её кольцо. В плитке примитив рисуется вариантом Algorithms с отсечением по ней.
+//
+// Все примитивы рисуются одним цветом, так что результат не зависит от порядка плиток и
+// совпадает с последовательным вызовом Algorithms для каждого примитива.
+public class BulkRasterizer {
+
+    public static final int TILE_SIZE = 64;
+
+    public static class Result {
+        private final int segments;
+        private final int circles;
+        private final long pixels;
+        private final long nanos;
+
+        Result(int segments, int circles, long pixels, long nanos) {
+            this.segments = segments;
+            this.circles = circles;
+            this.pixels = pixels;
+            this.nanos = nanos;
+        }
+
+        public int getSegments() {
+            return segments;
+        }
+
+        public int getCircles() {
+            return circles;
+        }
+
+        // Записанные в буфер клетки (с повторами там, где примитивы пересекаются)
+        public long getPixels() {
+            return pixels;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getSegmentsPerSecond() {
+            return segments * 1e9 / Math.max(1, nanos);
+        }
+
+        public double getPixelsPerSecond() {
+            return pixels * 1e9 / Math.max(1, nanos);
+        }
+    }
+
+    // Последовательно в текущем потоке
+    public static Result render(Framebuffer target, int[] segments, int[] circles, int color) {
+        return render(target, segments, circles, color, null);
+    }
+
+    // Плитки обрабатываются параллельно в указанном пуле; null — последовательно
+    public static Result render(Framebuffer target, int[] segments, int[] circles, int color, ForkJoinPool pool) {
+        if (segments.length % 4 != 0) {
+            throw new IllegalArgumentException("Длина массива отрезков должна быть кратна 4: " + segments.length);
+        }
+        if (circles.length % 3 != 0) {
+            throw new IllegalArgumentException("Длина массива окружностей должна быть кратна 3: " + circles.length);
+        }
+
+        long startTime = System.nanoTime();
+        int segmentCount = segments.length / 4;
+        int circleCount = circles.length / 3;
+        int width = target.getWidth();
+        int height = target.getHeight();
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        // Раскладка по плиткам: tileStart[t] .. tileStart[t + 1] в binned — номера примитивов
+        // плитки t. Первый проход считает пары примитив-плитка, второй раскладывает номера
+        int tileCount = tilesX * tilesY;
+        int[] tileStart = new int[tileCount + 1];
+        int[] area = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        Bins count = new Bins(tileStart, null, width, height, tilesX);
+        for (int i = 0; i < segmentCount; i++) {
+            binSegment(count, i, segments, i * 4, area);
+        }
+        for (int i = 0; i < circleCount; i++) {
+            binCircle(count, segmentCount + i, circles, i * 3, area);
+        }
+        if (count.total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Слишком много пар примитив-плитка: " + count.total);
+        }
+        // Сдвиг на одну плитку: после раскладки tileStart[t + 1] указывает на конец плитки t
+        for (int t = tileCount; t > 0; t--) {
+            tileStart[t] = tileStart[t - 1];
+        }
+        tileStart[0] = 0;
+        for (int t = 1; t <= tileCount; t++) {
+            tileStart[t] += tileStart[t - 1];
+        }
+        int[] binned = new int[(int) count.total];
+        int[] fill = new int[tileCount];
+        System.arraycopy(tileStart, 0, fill, 0, tileCount);
+        Bins place = new Bins(fill, binned, width, height, tilesX);
+        for (int i = 0; i < segmentCount; i++) {
+            binSegment(place, i, segments, i * 4, null);
+        }
+        for (int i = 0; i < circleCount; i++) {
+            binCircle(place, segmentCount + i, circles, i * 3, null);
+        }
+
+        int[] pixels = target.getPixels();
+        long[] written = new long[tileCount];
+        IntStream tiles = IntStream.range(0, tileCount);
+        if (pool == null) {
+            tiles.forEach(t -> written[t] = renderTile(t, tilesX, width, height, pixels, color,
+                segments, segmentCount, circles, binned, tileStart));
+        } else {
+            pool.submit(() -> tiles.parallel().forEach(t -> written[t] = renderTile(t, tilesX, width, height, pixels, color,
+                segments, segmentCount, circles, binned, tileStart))).join();
+        }
+
+        long total = 0;
+        for (long tileWritten : written) {
+            total += tileWritten;
+        }
+        target.markWritten(area[0], area[1], area[2], area[3], total);
+
+        return new Result(segmentCount, circleCount, total, System.nanoTime() - startTime);
+    }
+
+    private static long renderTile(int tile, int tilesX, int width, int height, int[] pixels, int color,
+                                   int[] segments, int segmentCount, int[] circles, int[] binned, int[] tileStart) {
+        int left = (tile % tilesX) * TILE_SIZE;
+        int top = (tile / tilesX) * TILE_SIZE;
+        Rectangle clip = new Rectangle(left, top, Math.min(width, left + TILE_SIZE) - left, Math.min(height, top + TILE_SIZE) - top);
+        TileSink sink = new TileSink(pixels, width, color);
+
+        for (int i = tileStart[tile]; i < tileStart[tile + 1]; i++) {
+            int p = binned[i];
+            if (p < segmentCount) {
+                Algorithms.bresenhamLine(segments[p * 4], segments[p * 4 + 1], segments[p * 4 + 2], segments[p * 4 + 3], clip, sink);
+            } else {
+                int c = (p - segmentCount) * 3;
+                Algorithms.bresenhamCircle(circles[c], circles[c + 1], circles[c + 2], clip, sink);
+            }
+        }
+        return sink.written;
+    }
+
+    // Счётчики плиток (binned == null) или раскладка номеров по позициям fill
+    private static class Bins {
+        final int[] tiles;
+        final int[] binned;
+        final int width, height, tilesX;
+        long total;
+
+        Bins(int[] tiles, int[] binned, int width, int height, int tilesX) {
+            this.tiles = tiles;
+            this.binned = binned;
+            this.width = width;
+            this.height = height;
+            this.tilesX = tilesX;
+        }
+
+        void add(int tx, int ty, int primitive) {
+            int tile = ty * tilesX + tx;
+            if (binned == null) {
+                tiles[tile]++;
+                total++;
+            } else {
+                binned[tiles[tile]++] = primitive;
+            }
+        }
+    }
+
+    // Отрезок попадает только в плитки, через которые проходит: по каждой плитке вдоль главной
+    // оси находится диапазон шагов и по нему — диапазон плиток по второй оси
+    private static void binSegment(Bins bins, int p, int[] segments, int offset, int[] area) {
+        Line line = new Line(segments[offset], segments[offset + 1], segments[offset + 2], segments[offset + 3]);
+        int majorSize = line.xMajor ? bins.width : bins.height;
+        int minorSize = line.xMajor ? bins.height : bins.width;
+        int majorFrom = Math.max(0, Math.min(line.m0, line.m1));
+        int majorTo = Math.min(majorSize - 1, Math.max(line.m0, line.m1));
+        for (int tm = majorFrom / TILE_SIZE; tm <= majorTo / TILE_SIZE && majorFrom <= majorTo; tm++) {
+            long from = line.firstStep(Math.max(majorFrom, tm * TILE_SIZE), Math.min(majorTo, tm * TILE_SIZE + TILE_SIZE - 1),
+                0, minorSize - 1);
+            long to = line.lastStep(Math.max(majorFrom, tm * TILE_SIZE), Math.min(majorTo, tm * TILE_SIZE + TILE_SIZE - 1),
+                0, minorSize - 1);
+            if (from > to) continue;
+            int n1 = line.minor(from), n2 = line.minor(to);
+            int minorFrom = Math.min(n1, n2), minorTo = Math.max(n1, n2);
+            for (int tn = minorFrom / TILE_SIZE; tn <= minorTo / TILE_SIZE; tn++) {
+                if (line.xMajor) {
+                    bins.add(tm, tn, p);
+                } else {
+                    bins.add(tn, tm, p);
+                }
+            }
+            if (area != null) {
+                int m1 = line.major(from), m2 = line.major(to);
+                include(area, line.xMajor ? Math.min(m1, m2) : minorFrom, line.xMajor ? minorFrom : Math.min(m1, m2),
+                    line.xMajor ? Math.max(m1, m2) : minorTo, line.xMajor ? minorTo : Math.max(m1, m2));
+            }
+        }
+    }
+
+    // Окружность попадает в плитки, которые пересекает кольцо r - 2 .. r + 2 вокруг центра:
+    // точки Брезенхема отстоят от окружности меньше чем на клетку. Рамка расширена на клетку:
+    // при r = 0 последний шаг уводит y в -1 и точки ложатся в xc ± 1, yc ± 1
+    private static void binCircle(Bins bins, int p, int[] circles, int offset, int[] area) {
+        int xc = circles[offset], yc = circles[offset + 1], r = Math.abs(circles[offset + 2]);
+        int minX = Math.max(0, xc - r - 1), minY = Math.max(0, yc - r - 1);
+        int maxX = Math.min(bins.width - 1, xc + r + 1), maxY = Math.min(bins.height - 1, yc + r + 1);
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+        long outer = (long) (r + 2) * (r + 2);
+        long inner = r > 2 ? (long) (r - 2) * (r - 2) : -1;
+        for (int ty = minY / TILE_SIZE; ty <= maxY / TILE_SIZE; ty++) {
+            int top = ty * TILE_SIZE, bottom = top + TILE_SIZE - 1;
+            long nearY = yc < top ? top - yc : yc > bottom ? yc - bottom : 0;
+            long farY = Math.max(Math.abs(yc - top), Math.abs(yc - bottom));
+            for (int tx = minX / TILE_SIZE; tx <= maxX / TILE_SIZE; tx++) {
+                int left = tx * TILE_SIZE, right = left + TILE_SIZE - 1;
+                long nearX = xc < left ? left - xc : xc > right ? xc - right : 0;
+                long farX = Math.max(Math.abs(xc - left), Math.abs(xc - right));
+                if (nearX * nearX + nearY * nearY <= outer && farX * farX + farY * farY >= inner) {
+                    bins.add(tx, ty, p);
+                }
+            }
+        }
+        if (area != null) {
+            include(area, minX, minY, maxX, maxY);
+        }
+    }
+
+    private static void include(int[] area, int minX, int minY, int maxX, int maxY) {
+        area[0] = Math.min(area[0], minX);
+        area[1] = Math.min(area[1], minY);
+        area[2] = Math.max(area[2], maxX);
+        area[3] = Math.max(area[3], maxY);
+    }
+
+    // Отрезок Брезенхема (как Algorithms.bresenhamLine) в координатах главной и второй оси.
+    // На шаге i главная координата равна m0 + sm * i, а вторая — n0 + sn * minorOffset(i):
+    // число шагов по второй оси до шага i считается по формуле без прохода по точкам
+    private static class Line {
+        final int x0, y0, x1, y1, dx, dy, sx, sy;
+        final boolean xMajor;
+        final int m0, m1, n0, sm, sn;
+        final long dm, dn;
+
+        Line(int x0, int y0, int x1, int y1) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            dx = Math.abs(x1 - x0);
+            dy = Math.abs(y1 - y0);
+            sx = x0 < x1 ? 1 : -1;
+            sy = y0 < y1 ? 1 : -1;
+            xMajor = dx >= dy;
+            m0 = xMajor ? x0 : y0;
+            m1 = xMajor ? x1 : y1;
+            n0 = xMajor ? y0 : x0;
+            sm = xMajor ? sx : sy;
+            sn = xMajor ? sy : sx;
+            dm = Math.max(dx, dy);
+            dn = Math.min(dx, dy);
+        }
+
+        long minorOffset(long i) {
+            return Algorithms.bresenhamMinorSteps(dm, dn, i);
+        }
+
+        // Первый шаг, на котором смещение по второй оси не меньше q
+        long firstStepWithOffset(long q) {
+            if (q <= 0) return 0;
+            if (dn == 0) return Long.MAX_VALUE;
+            return ceilDiv(2 * dm * q - dm + 1, 2 * dn);
+        }
+
+        int major(long i) {
+            return (int) (m0 + sm * i);
+        }
+
+        int minor(long i) {
+            return (int) (n0 + sn * minorOffset(i));
+        }
+
+        // Первый и последний шаги, точки которых лежат в [majorFrom, majorTo] x [minorFrom, minorTo]
+        // по главной и второй осям; пустой диапазон — first > last
+        long firstStep(int majorFrom, int majorTo, int minorFrom, int minorTo) {
+            long lo = sm > 0 ? majorFrom - (long) m0 : m0 - (long) majorTo;
+            long q = sn > 0 ? minorFrom - (long) n0 : n0 - (long) minorTo;
+            return Math.max(Math.max(0, lo), firstStepWithOffset(q));
+        }
+
+        long lastStep(int majorFrom, int majorTo, int minorFrom, int minorTo) {
+            long hi = sm > 0 ? majorTo - (long) m0 : m0 - (long) majorFrom;
+            long q = sn > 0 ? minorTo - (long) n0 : n0 - (long) minorFrom;
+            if (q < 0) return -1;
+            long beyond = firstStepWithOffset(q + 1);
+            return Math.min(Math.min(dm, hi), beyond == Long.MAX_VALUE ? dm : beyond - 1);
+        }
+
+        private static long ceilDiv(long a, long b) {
+            return a <= 0 ? 0 : (a + b - 1) / b;
+        }
+    }
+
+    // Точки приходят уже отсечёнными по плитке
+    private static class TileSink implements PixelSink {
+        private final int[] pixels;
+        private final int width;
+        private final int color;
+        long written;
+
+        TileSink(int[] pixels, int width, int color) {
+            this.pixels = pixels;
+            this.width = width;
+            this.color = color;
+        }
+
+        @Override
+        public void accept(int x, int y) {
+            pixels[y * width + x] = color;
+            written++;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Пропускная способность пакетной растеризации: много коротких отрезков (ломаные, как на
+// карте), немного длинных и окружности в буфере SIZE x SIZE клеток.
+//
+// Сравниваются три способа:
+//   single   — цикл вызовов Algorithms в Framebuffer, по примитиву за раз;
+//   bulk-1   — BulkRasterizer в текущем потоке (раскладка по плиткам без параллельности);
+//   bulk-N   — BulkRasterizer в общем ForkJoinPool.
+// Перед замерами проверяется, что все три способа дают одинаковое изображение.
+//
+// Запуск: java BulkRasterizerBenchmark [отрезков] [окружностей]
+public class BulkRasterizerBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final int COLOR = 0xFF000000;
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) {
+        int segmentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int circleCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        Random random = new Random(42);
+        int[] segments = segments(random, segmentCount);
+        int[] circles = circles(random, circleCount);
+
+        Framebuffer single = new Framebuffer(SIZE, SIZE);
+        Framebuffer sequential = new Framebuffer(SIZE, SIZE);
+        Framebuffer parallel = new Framebuffer(SIZE, SIZE);
+        drawSingle(single, segments, circles);
+        BulkRasterizer.render(sequential, segments, circles, COLOR);
+        BulkRasterizer.render(parallel, segments, circles, COLOR, ForkJoinPool.commonPool());
+        if (!Arrays.equals(single.getPixels(), sequential.getPixels())
+            || !Arrays.equals(single.getPixels(), parallel.getPixels())) {
+            throw new IllegalStateException("Пакетная растеризация расходится с поштучной");
+        }
+
+        System.out.printf(Locale.ROOT, "отрезков: %d, окружностей: %d, буфер %dx%d, плитка %d, потоков: %d%n",
+            segmentCount, circleCount, SIZE, SIZE, BulkRasterizer.TILE_SIZE, ForkJoinPool.commonPool().getParallelism());
+        System.out.printf(Locale.ROOT, "%-8s %10s %14s %14s%n", "способ", "мс", "отрезков/с", "пикселей/с");
+
+        long pixels = 0;
+        double[] millis = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            single.clear();
+            long start = System.nanoTime();
+            drawSingle(single, segments, circles);
+            millis[run] = (System.nanoTime() - start) / 1e6;
+            pixels = single.getWrites();
+        }
+        print("single", median(millis), segmentCount, pixels);
+
+        print("bulk-1", sequential, segments, circles, null);
+        print("bulk-" + ForkJoinPool.commonPool().getParallelism(), parallel, segments, circles, ForkJoinPool.commonPool());
+    }
+
+    private static void drawSingle(Framebuffer target, int[] segments, int[] circles) {
+        for (int i = 0; i < segments.length; i += 4) {
+            Algorithms.bresenhamLine(segments[i], segments[i + 1], segments[i + 2], segments[i + 3], target);
+        }
+        for (int i = 0; i < circles.length; i += 3) {
+            Algorithms.bresenhamCircle(circles[i], circles[i + 1], circles[i + 2], target);
+        }
+    }
+
+    private static void print(String name, Framebuffer target, int[] segments, int[] circles, ForkJoinPool pool) {
+        double[] millis = new double[RUNS];
+        long pixels = 0;
+        for (int run = 0; run < RUNS; run++) {
+            target.clear();
+            BulkRasterizer.Result result = BulkRasterizer.render(target, segments, circles, COLOR, pool);
+            millis[run] = result.getNanos() / 1e6;
+            pixels = result.getPixels();
+        }
+        print(name, median(millis), segments.length / 4, pixels);
+    }
+
+    private static void print(String name, double millis, int segmentCount, long pixels) {
+        System.out.printf(Locale.ROOT, "%-8s %10.1f %14.0f %14.0f%n",
+            name, millis, segmentCount * 1e3 / millis, pixels * 1e3 / millis);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // Ломаные из шагов до 32 клеток; каждый сотый отрезок — длинный, через полбуфера
+    private static int[] segments(Random random, int count) {
+        int[] result = new int[count * 4];
+        int x = random.nextInt(SIZE), y = random.nextInt(SIZE);
+        for (int i = 0; i < count; i++) {
+            if (i % 64 == 0) {
+                x = random.nextInt(SIZE);
+                y = random.nextInt(SIZE);
+            }
+            int step = i % 100 == 0 ? SIZE / 2 : 32;
+            int nx = clamp(x + random.nextInt(2 * step + 1) - step);
+            int ny = clamp(y + random.nextInt(2 * step + 1) - step);
+            result[i * 4] = x;
+            result[i * 4 + 1] = y;
+            result[i * 4 + 2] = nx;
+            result[i * 4 + 3] = ny;
+            if (step == 32) {
+                x = nx;
+                y = ny;
+            }
+        }
+        return result;
+    }
+
+    // Окружности радиусом до 24 клеток, часть — у краёв буфера
+    private static int[] circles(Random random, int count) {
+        int[] result = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            result[i * 3] = random.nextInt(SIZE + 32) - 16;
+            result[i * 3 + 1] = random.nextInt(SIZE + 32) - 16;
+            result[i * 3 + 2] = 1 + random.nextInt(24);
+        }
+        return result;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(SIZE - 1, value));
+    }
+}
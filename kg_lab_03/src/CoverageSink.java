@@ -0,0 +1,6 @@
+// Приёмник сглаженных растровых алгоритмов: клетка и её покрытие линией от 1 до 255
+// (255 — клетка закрыта полностью). Клетки с нулевым покрытием не передаются
+@FunctionalInterface
+public interface CoverageSink {
+    void accept(int x, int y, int coverage);
+}
@@ -0,0 +1,211 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+// Кадровый буфер в клетках сетки: одна клетка — один пиксель TYPE_INT_ARGB, алгоритмы
+// пишут в массив изображения напрямую как PixelSink, заливки — отрезками строк как SpanSink
+// (Arrays.fill по строке). Пустая клетка — 0 (прозрачная).
+//
+// Буфер помнит прямоугольник изменённых клеток (запись или очистка) до вызова takeDirty,
+// чтобы панель обновляла и перерисовывала только его. Точки за пределами буфера отбрасываются.
+public class Framebuffer implements PixelSink, SpanSink {
+    private BufferedImage image;
+    private int[] pixels;
+    private int width, height;
+    private int color = 0xFF000000;
+    private long writes;
+
+    // Изменённые клетки с прошлого takeDirty и занятые клетки с прошлого clear;
+    // пустой прямоугольник — min > max
+    private int dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;
+    private int usedMinX, usedMinY, usedMaxX, usedMaxY;
+
+    public Framebuffer(int width, int height) {
+        allocate(width, height);
+        resetDirty();
+        resetUsed();
+    }
+
+    @Override
+    public void accept(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        pixels[y * width + x] = color;
+        writes++;
+        if (x < dirtyMinX) dirtyMinX = x;
+        if (x > dirtyMaxX) dirtyMaxX = x;
+        if (y < dirtyMinY) dirtyMinY = y;
+        if (y > dirtyMaxY) dirtyMaxY = y;
+        if (x < usedMinX) usedMinX = x;
+        if (x > usedMaxX) usedMaxX = x;
+        if (y < usedMinY) usedMinY = y;
+        if (y > usedMaxY) usedMaxY = y;
+    }
+
+    // Отрезок строки y от x0 до x1 включительно; часть за пределами буфера отбрасывается
+    @Override
+    public void accept(int y, int x0, int x1) {
+        if (y < 0 || y >= height) {
+            return;
+        }
+        int from = Math.max(0, x0);
+        int to = Math.min(width - 1, x1);
+        if (from > to) {
+            return;
+        }
+        writes += to - from + 1;
+        Arrays.fill(pixels, y * width + from, y * width + to + 1, color);
+        if (from < dirtyMinX) dirtyMinX = from;
+        if (to > dirtyMaxX) dirtyMaxX = to;
+        if (y < dirtyMinY) dirtyMinY = y;
+        if (y > dirtyMaxY) dirtyMaxY = y;
+        if (from < usedMinX) usedMinX = from;
+        if (to > usedMaxX) usedMaxX = to;
+        if (y < usedMinY) usedMinY = y;
+        if (y > usedMaxY) usedMaxY = y;
+    }
+
+    // Сглаженная точка: цвет с непрозрачностью coverage / 255 от непрозрачности цвета; если
+    // клетка уже закрыта сильнее, она не меняется. Для сглаженных алгоритмов как CoverageSink
+    // (framebuffer::blend) — у SpanSink.accept та же сигнатура
+    public void blend(int x, int y, int coverage) {
+        if (x < 0 || y < 0 || x >= width || y >= height || coverage <= 0) {
+            return;
+        }
+        int alpha = Math.min(255, coverage) * (color >>> 24) / 255;
+        int index = y * width + x;
+        if (alpha <= pixels[index] >>> 24) {
+            return;
+        }
+        pixels[index] = alpha << 24 | (color & 0xFFFFFF);
+        writes++;
+        if (x < dirtyMinX) dirtyMinX = x;
+        if (x > dirtyMaxX) dirtyMaxX = x;
+        if (y < dirtyMinY) dirtyMinY = y;
+        if (y > dirtyMaxY) dirtyMaxY = y;
+        if (x < usedMinX) usedMinX = x;
+        if (x > usedMaxX) usedMaxX = x;
+        if (y < usedMinY) usedMinY = y;
+        if (y > usedMaxY) usedMaxY = y;
+    }
+
+    // Цвет последующих записей, 0xAARRGGBB
+    public void setColor(int argb) {
+        color = argb;
+    }
+
+    // Очищаются только занятые строки; они же помечаются изменёнными
+    public void clear() {
+        if (usedMinX <= usedMaxX) {
+            for (int y = usedMinY; y <= usedMaxY; y++) {
+                int row = y * width;
+                Arrays.fill(pixels, row + usedMinX, row + usedMaxX + 1, 0);
+            }
+            markDirty(usedMinX, usedMinY, usedMaxX, usedMaxY);
+        }
+        resetUsed();
+        writes = 0;
+    }
+
+    // Новый размер в клетках; содержимое в пересечении сохраняется
+    public void resize(int newWidth, int newHeight) {
+        if (newWidth == width && newHeight == height) {
+            return;
+        }
+        int[] old = pixels;
+        int oldWidth = width;
+        int copyWidth = Math.min(width, newWidth);
+        int copyHeight = Math.min(height, newHeight);
+        allocate(newWidth, newHeight);
+        for (int y = 0; y < copyHeight; y++) {
+            System.arraycopy(old, y * oldWidth, pixels, y * newWidth, copyWidth);
+        }
+        usedMaxX = Math.min(usedMaxX, newWidth - 1);
+        usedMaxY = Math.min(usedMaxY, newHeight - 1);
+        dirtyMaxX = Math.min(dirtyMaxX, newWidth - 1);
+        dirtyMaxY = Math.min(dirtyMaxY, newHeight - 1);
+    }
+
+    // Изменённые клетки с прошлого вызова (null, если изменений не было)
+    public Rectangle takeDirty() {
+        if (dirtyMinX > dirtyMaxX || dirtyMinY > dirtyMaxY) {
+            return null;
+        }
+        Rectangle dirty = new Rectangle(dirtyMinX, dirtyMinY, dirtyMaxX - dirtyMinX + 1, dirtyMaxY - dirtyMinY + 1);
+        resetDirty();
+        return dirty;
+    }
+
+    // Массив клеток изображения (строка за строкой, width элементов в строке) для прямой
+    // записи; записанную область и число записанных клеток нужно сообщить через markWritten
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    // В прямоугольнике [minX, maxX] x [minY, maxY] записано cells клеток в обход accept;
+    // они учитываются в getWrites так же, как записи через accept
+    public void markWritten(int minX, int minY, int maxX, int maxY, long cells) {
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+        writes += cells;
+        markDirty(minX, minY, maxX, maxY);
+        usedMinX = Math.min(usedMinX, minX);
+        usedMinY = Math.min(usedMinY, minY);
+        usedMaxX = Math.max(usedMaxX, maxX);
+        usedMaxY = Math.max(usedMaxY, maxY);
+    }
+
+    // Число записанных клеток с прошлого clear: точки и клетки отрезков строк в пределах
+    // буфера и клетки, сообщённые через markWritten; точки за его пределами и сглаженные
+    // точки, не изменившие клетку, не считаются
+    public long getWrites() {
+        return writes;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Цвет клетки 0xAARRGGBB, 0 — пустая клетка или точка вне буфера
+    public int get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0;
+        }
+        return pixels[y * width + x];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    private void allocate(int newWidth, int newHeight) {
+        width = Math.max(1, newWidth);
+        height = Math.max(1, newHeight);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private void markDirty(int minX, int minY, int maxX, int maxY) {
+        dirtyMinX = Math.min(dirtyMinX, minX);
+        dirtyMinY = Math.min(dirtyMinY, minY);
+        dirtyMaxX = Math.max(dirtyMaxX, maxX);
+        dirtyMaxY = Math.max(dirtyMaxY, maxY);
+    }
+
+    private void resetDirty() {
+        dirtyMinX = dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = dirtyMaxY = Integer.MIN_VALUE;
+    }
+
+    private void resetUsed() {
+        usedMinX = usedMinY = Integer.MAX_VALUE;
+        usedMaxX = usedMaxY = Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,6 @@
+// Приёмник пикселей растровых алгоритмов: вызывается для каждой закрашиваемой клетки
+// в порядке обхода алгоритма, без создания объектов на пиксель
+@FunctionalInterface
+public interface PixelSink {
+    void accept(int x, int y);
+}
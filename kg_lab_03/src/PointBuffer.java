@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Растущий буфер точек: координаты хранятся парами x, y в одном int[].
+// clear() сохраняет ёмкость, поэтому один буфер можно переиспользовать между вызовами
+// алгоритмов — после того как он вырос до нужного размера, выделений памяти нет.
+public class PointBuffer implements PixelSink {
+    private int[] coordinates;
+    private int size;
+
+    public PointBuffer() {
+        this(64);
+    }
+
+    public PointBuffer(int initialCapacity) {
+        coordinates = new int[Math.max(1, initialCapacity) * 2];
+    }
+
+    @Override
+    public void accept(int x, int y) {
+        if (size * 2 == coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+        }
+        coordinates[size * 2] = x;
+        coordinates[size * 2 + 1] = y;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int index) {
+        return coordinates[index * 2];
+    }
+
+    public int getY(int index) {
+        return coordinates[index * 2 + 1];
+    }
+
+    // Передаёт все точки в другой приёмник в порядке добавления
+    public void forEach(PixelSink sink) {
+        for (int i = 0; i < size * 2; i += 2) {
+            sink.accept(coordinates[i], coordinates[i + 1]);
+        }
+    }
+
+    // Копия в виде объектов Point — для кода, которому нужен список
+    public List<Point> toPoints() {
+        List<Point> points = new ArrayList<>(size);
+        for (int i = 0; i < size * 2; i += 2) {
+            points.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        return points;
+    }
+}
@@ -1,7 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class RasterGraphics extends JFrame {
     private CanvasPanel canvasPanel;
@@ -30,7 +32,8 @@ public class RasterGraphics extends JFrame {
     }
 
     private void initializeComponents() {
-        String[] algorithms = {"Пошаговый", "ЦДА", "Брезенхем (линии)", "Брезенхем (окружность)"};
+        String[] algorithms = {"Пошаговый", "ЦДА", "Брезенхем (линии)", "Брезенхем (окружность)", "Круг (заливка)",
+                "Ву (линии)", "Ву (окружность)"};
         algorithmSelect = new JComboBox<>(algorithms);
 
         gridSizeSlider = new JSlider(10, 50, 20);
@@ -83,7 +86,12 @@ public class RasterGraphics extends JFrame {
     static class CanvasPanel extends JPanel {
         private int cellSize;
         private Integer startX, startY, endX, endY;
-        private List<Point> gridPoints;
+        // Результат алгоритма в клетках. Слой сетки кэшируется до смены размера клетки или
+        // панели; screen — сетка с закрашенными клетками в пикселях экрана, обновляется только
+        // в изменённых клетках и выводится одним копированием
+        private final Framebuffer framebuffer = new Framebuffer(1, 1);
+        private BufferedImage gridLayer;
+        private BufferedImage screen;
         private JSlider gridSizeSlider;
         private JLabel statusLabel;
         private JLabel timeLabel;
@@ -104,7 +112,6 @@ public class RasterGraphics extends JFrame {
             setBorder(BorderFactory.createLineBorder(Color.BLACK));
 
             cellSize = gridSizeSlider.getValue();
-            gridPoints = new java.util.ArrayList<>();
 
             addMouseListener(new MouseAdapter() {
                 @Override
@@ -117,11 +124,14 @@ public class RasterGraphics extends JFrame {
                         startY = y;
                         statusLabel.setText("Начальная точка выбрана: (" + startX + ", " + startY + "). Выберите конечную точку.");
                     } else {
+                        if (endX != null) {
+                            repaintCell(endX, endY);
+                        }
                         endX = x;
                         endY = y;
                         statusLabel.setText("Конечная точка выбрана: (" + endX + ", " + endY + "). Нажмите \"Нарисовать\".");
                     }
-                    repaint();
+                    repaintCell(x, y);
                 }
             });
         }
@@ -129,7 +139,9 @@ public class RasterGraphics extends JFrame {
         public void updateGridSize() {
             cellSize = gridSizeSlider.getValue();
             startX = startY = endX = endY = null;
-            gridPoints.clear();
+            gridLayer = null;
+            framebuffer.clear();
+            framebuffer.takeDirty();
             timeLabel.setText("Время выполнения: -");
             logArea.setText("");
             statusLabel.setText("Нажмите на полотно, чтобы выбрать начальную и конечную точки.");
@@ -139,27 +151,92 @@ public class RasterGraphics extends JFrame {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            drawGrid(g);
+            ensureLayers();
 
-            // Рисуем точки
-            if (startX != null) {
+            // Копируется только область отсечения (после алгоритма — изменённые клетки)
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.drawImage(screen, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+
+            // Рисуем точки; закрашенные алгоритмом клетки остаются поверх, как и прежде
+            if (startX != null && framebuffer.get(startX, startY) == 0) {
                 drawPoint(g, startX, startY, Color.GREEN);
             }
-            if (endX != null) {
+            if (endX != null && framebuffer.get(endX, endY) == 0) {
                 drawPoint(g, endX, endY, Color.RED);
             }
+        }
 
-            // Рисуем алгоритм
-            for (Point p : gridPoints) {
-                g.setColor(Color.BLACK);
-                g.fillRect(p.x * cellSize, p.y * cellSize, cellSize, cellSize);
+        // Слой сетки, экранный слой и размер кадрового буфера под текущие размеры панели и клетки
+        private void ensureLayers() {
+            int width = Math.max(1, getWidth());
+            int height = Math.max(1, getHeight());
+            if (gridLayer != null && gridLayer.getWidth() == width && gridLayer.getHeight() == height) {
+                return;
+            }
+
+            gridLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = gridLayer.createGraphics();
+            g.setColor(getBackground());
+            g.fillRect(0, 0, width, height);
+            g.setFont(getFont());
+            drawGrid(g, width, height);
+            g.dispose();
+
+            screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            framebuffer.resize((width + cellSize - 1) / cellSize, (height + cellSize - 1) / cellSize);
+            framebuffer.takeDirty();
+            compose(0, 0, framebuffer.getWidth(), framebuffer.getHeight());
+        }
+
+        // Переносит клетки [cellX, cellX + cells) x [cellY, cellY + rows) на экранный слой:
+        // закрашенные — цветом клетки (полупрозрачные — смешанным с фоном), пустые — из слоя сетки
+        private void compose(int cellX, int cellY, int cells, int rows) {
+            int[] grid = ((DataBufferInt) gridLayer.getRaster().getDataBuffer()).getData();
+            int[] target = ((DataBufferInt) screen.getRaster().getDataBuffer()).getData();
+            int width = screen.getWidth();
+            int height = screen.getHeight();
+            int background = getBackground().getRGB();
+
+            for (int cy = cellY; cy < cellY + rows; cy++) {
+                int top = cy * cellSize;
+                int bottom = Math.min(height, top + cellSize);
+                for (int cx = cellX; cx < cellX + cells; cx++) {
+                    int left = cx * cellSize;
+                    int right = Math.min(width, left + cellSize);
+                    int color = framebuffer.get(cx, cy);
+                    if (color != 0 && color >>> 24 != 255) {
+                        color = blend(background, color);
+                    }
+                    for (int y = top; y < bottom; y++) {
+                        int row = y * width;
+                        if (color == 0) {
+                            System.arraycopy(grid, row + left, target, row + left, right - left);
+                        } else {
+                            Arrays.fill(target, row + left, row + right, color);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Цвет 0xAARRGGBB поверх непрозрачного фона
+        private int blend(int background, int color) {
+            int alpha = color >>> 24;
+            int result = 0xFF000000;
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int back = background >> shift & 0xFF;
+                int front = color >> shift & 0xFF;
+                result |= (back + (front - back) * alpha / 255) << shift;
             }
+            return result;
         }
 
-        private void drawGrid(Graphics g) {
+        private void drawGrid(Graphics g, int width, int height) {
             g.setColor(Color.LIGHT_GRAY);
-            int width = getWidth();
-            int height = getHeight();
 
             // Вертикальные линии и подписи
             for (int x = 0; x < width; x += cellSize) {
@@ -178,6 +255,10 @@ public class RasterGraphics extends JFrame {
             }
         }
 
+        private void repaintCell(int x, int y) {
+            repaint(x * cellSize, y * cellSize, cellSize, cellSize);
+        }
+
         private void drawPoint(Graphics g, int x, int y, Color color) {
             g.setColor(color);
             g.fillRect(x * cellSize, y * cellSize, cellSize, cellSize);
@@ -189,50 +270,91 @@ public class RasterGraphics extends JFrame {
                 return;
             }
 
-            gridPoints.clear();
             String algorithm = (String) algorithmSelect.getSelectedItem();
-            AlgorithmResult result = null;
 
             logArea.setText(""); // Очищаем лог
 
+            // Алгоритм пишет прямо в кадровый буфер; прежний результат стирается
+            ensureLayers();
+            framebuffer.clear();
+            int radius = (int) Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
+            // Выдаются только клетки внутри сетки; за её пределами окружность не перебирается
+            Rectangle visible = new Rectangle(0, 0, framebuffer.getWidth(), framebuffer.getHeight());
+            long startTime = System.nanoTime();
+
             switch (algorithm) {
                 case "Пошаговый":
-                    result = Algorithms.stepAlgorithm(startX, startY, endX, endY);
-                    logStepAlgorithmDetails(startX, startY, endX, endY, result);
+                    Algorithms.stepAlgorithm(startX, startY, endX, endY, visible, framebuffer);
                     break;
                 case "ЦДА":
-                    result = Algorithms.ddaAlgorithm(startX, startY, endX, endY);
-                    logDDAAlgorithmDetails(startX, startY, endX, endY, result);
+                    Algorithms.ddaAlgorithm(startX, startY, endX, endY, visible, framebuffer);
                     break;
                 case "Брезенхем (линии)":
-                    result = Algorithms.bresenhamLine(startX, startY, endX, endY);
-                    logBresenhamLineDetails(startX, startY, endX, endY, result);
+                    Algorithms.bresenhamLine(startX, startY, endX, endY, visible, framebuffer);
                     break;
                 case "Брезенхем (окружность)":
-                    int radius = (int) Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
-                    result = Algorithms.bresenhamCircle(startX, startY, radius);
-                    logCircleDetails(startX, startY, radius, result);
+                    Algorithms.bresenhamCircle(startX, startY, radius, visible, framebuffer);
+                    break;
+                case "Круг (заливка)":
+                    // Отрезки строк за пределами сетки обрезает сам кадровый буфер
+                    Algorithms.filledCircle(startX, startY, radius, framebuffer);
+                    break;
+                case "Ву (линии)":
+                    Algorithms.wuLine(startX, startY, endX, endY, framebuffer::blend);
+                    break;
+                case "Ву (окружность)":
+                    Algorithms.wuCircle(startX, startY, radius, framebuffer::blend);
                     break;
             }
 
-            if (result != null) {
-                gridPoints = result.getPoints();
-                lastExecutionTime = result.getExecutionTime();
-                timeLabel.setText(String.format("Время выполнения: %d мкс", lastExecutionTime));
+            lastExecutionTime = (System.nanoTime() - startTime) / 1000;
 
-                // Добавляем общую информацию в лог
-                logArea.append("=== ОБЩАЯ ИНФОРМАЦИЯ ===\n");
-                logArea.append(String.format("Алгоритм: %s\n", algorithm));
-                logArea.append(String.format("Количество точек: %d\n", gridPoints.size()));
-                logArea.append(String.format("Время выполнения: %d мкс\n\n", lastExecutionTime));
+            switch (algorithm) {
+                case "Пошаговый":
+                    logStepAlgorithmDetails(startX, startY, endX, endY);
+                    break;
+                case "ЦДА":
+                    logDDAAlgorithmDetails(startX, startY, endX, endY);
+                    break;
+                case "Брезенхем (линии)":
+                    logBresenhamLineDetails(startX, startY, endX, endY);
+                    break;
+                case "Брезенхем (окружность)":
+                    logCircleDetails(startX, startY, radius);
+                    break;
+                case "Круг (заливка)":
+                    logFilledCircleDetails(startX, startY, radius);
+                    break;
+                case "Ву (линии)":
+                    logWuLineDetails(startX, startY, endX, endY);
+                    break;
+                case "Ву (окружность)":
+                    logWuCircleDetails(startX, startY, radius);
+                    break;
+            }
+
+            timeLabel.setText(String.format("Время выполнения: %d мкс", lastExecutionTime));
+
+            // Добавляем общую информацию в лог
+            logArea.append("=== ОБЩАЯ ИНФОРМАЦИЯ ===\n");
+            logArea.append(String.format("Алгоритм: %s\n", algorithm));
+            logArea.append(String.format("Количество видимых точек: %d\n", framebuffer.getWrites()));
+            logArea.append(String.format("Время выполнения: %d мкс\n\n", lastExecutionTime));
+
+            // Перерисовываются стёртые и новые клетки и ячейки маркеров
+            repaintCell(startX, startY);
+            repaintCell(endX, endY);
+            Rectangle dirty = framebuffer.takeDirty();
+            if (dirty != null) {
+                compose(dirty.x, dirty.y, dirty.width, dirty.height);
+                repaint(dirty.x * cellSize, dirty.y * cellSize, dirty.width * cellSize, dirty.height * cellSize);
             }
 
             startX = startY = endX = endY = null;
             statusLabel.setText("Нажмите на сетку, чтобы выбрать начальную и конечную точки.");
-            repaint();
         }
 
-        private void logStepAlgorithmDetails(int x0, int y0, int x1, int y1, AlgorithmResult result) {
+        private void logStepAlgorithmDetails(int x0, int y0, int x1, int y1) {
             logArea.append("=== ПОШАГОВЫЙ АЛГОРИТМ ===\n");
             logArea.append(String.format("Начальная точка: (%d, %d)\n", x0, y0));
             logArea.append(String.format("Конечная точка: (%d, %d)\n", x1, y1));
@@ -249,7 +371,7 @@ public class RasterGraphics extends JFrame {
             logArea.append(String.format("Количество итераций: %d\n", Math.max(dx, dy)));
         }
 
-        private void logDDAAlgorithmDetails(int x0, int y0, int x1, int y1, AlgorithmResult result) {
+        private void logDDAAlgorithmDetails(int x0, int y0, int x1, int y1) {
             logArea.append("=== АЛГОРИТМ ЦДА ===\n");
             logArea.append(String.format("Начальная точка: (%d, %d)\n", x0, y0));
             logArea.append(String.format("Конечная точка: (%d, %d)\n", x1, y1));
@@ -264,7 +386,7 @@ public class RasterGraphics extends JFrame {
             logArea.append(String.format("Приращение Y: %.3f\n", dy / (float)steps));
         }
 
-        private void logBresenhamLineDetails(int x0, int y0, int x1, int y1, AlgorithmResult result) {
+        private void logBresenhamLineDetails(int x0, int y0, int x1, int y1) {
             logArea.append("=== АЛГОРИТМ БРЕЗЕНХЕМА (ЛИНИЯ) ===\n");
             logArea.append(String.format("Начальная точка: (%d, %d)\n", x0, y0));
             logArea.append(String.format("Конечная точка: (%d, %d)\n", x1, y1));
@@ -276,7 +398,7 @@ public class RasterGraphics extends JFrame {
             logArea.append(String.format("Начальная ошибка: %d\n", dx - dy));
         }
 
-        private void logCircleDetails(int xc, int yc, int radius, AlgorithmResult result) {
+        private void logCircleDetails(int xc, int yc, int radius) {
             logArea.append("=== АЛГОРИТМ БРЕЗЕНХЕМА (ОКРУЖНОСТЬ) ===\n");
             logArea.append(String.format("Центр: (%d, %d)\n", xc, yc));
             logArea.append(String.format("Радиус: %d\n", radius));
@@ -285,12 +407,49 @@ public class RasterGraphics extends JFrame {
             logArea.append(String.format("Оценочное количество точек: %d\n", (int)(2 * Math.PI * radius)));
         }
 
+        private void logFilledCircleDetails(int xc, int yc, int radius) {
+            logArea.append("=== ЗАЛИВКА КРУГА (СРЕДНЯЯ ТОЧКА) ===\n");
+            logArea.append(String.format("Центр: (%d, %d)\n", xc, yc));
+            logArea.append(String.format("Радиус: %d\n", radius));
+            logArea.append(String.format("Строк: %d\n", radius * 2 + 1));
+            logArea.append(String.format("Оценочная площадь: %d\n", Math.round(Math.PI * radius * radius)));
+        }
+
+        private void logWuLineDetails(int x0, int y0, int x1, int y1) {
+            logArea.append("=== АЛГОРИТМ ВУ (СГЛАЖЕННЫЙ ОТРЕЗОК) ===\n");
+            logArea.append(String.format("Начальная точка: (%d, %d)\n", x0, y0));
+            logArea.append(String.format("Конечная точка: (%d, %d)\n", x1, y1));
+
+            int dx = Math.abs(x1 - x0);
+            int dy = Math.abs(y1 - y0);
+            int major = Math.max(dx, dy);
+
+            logArea.append(String.format("dx = %d, dy = %d\n", dx, dy));
+            if (major > 0) {
+                logArea.append(String.format("Шаг дроби (2^32 * %d / %d): %d\n",
+                    Math.min(dx, dy), major, ((long) Math.min(dx, dy) << 32) / major));
+            }
+        }
+
+        private void logWuCircleDetails(int xc, int yc, int radius) {
+            logArea.append("=== АЛГОРИТМ ВУ (СГЛАЖЕННАЯ ОКРУЖНОСТЬ) ===\n");
+            logArea.append(String.format("Центр: (%d, %d)\n", xc, yc));
+            logArea.append(String.format("Радиус: %d, r^2 = %d\n", radius, (long) radius * radius));
+            logArea.append(String.format("Шагов в октанте: %d\n", (int) (radius / Math.sqrt(2)) + 1));
+        }
+
         public long getLastExecutionTime() {
             return lastExecutionTime;
         }
     }
 
     public static void main(String[] args) {
+        if (Boolean.getBoolean("kg.algorithmMetrics")) {
+            AlgorithmMetrics metrics = new AlgorithmMetrics();
+            Algorithms.setListener(metrics);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.print(metrics.report())));
+        }
+
         SwingUtilities.invokeLater(() -> {
             new RasterGraphics();
         });
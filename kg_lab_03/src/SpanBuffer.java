@@ -0,0 +1,72 @@
+import java.util.Arrays;
+
+// Растущий буфер отрезков заливки: тройки y, x0, x1 в одном int[], как в PointBuffer.
+// clear() сохраняет ёмкость, поэтому буфер можно переиспользовать между вызовами.
+public class SpanBuffer implements SpanSink {
+    private int[] spans;
+    private int size;
+
+    public SpanBuffer() {
+        this(64);
+    }
+
+    public SpanBuffer(int initialCapacity) {
+        spans = new int[Math.max(1, initialCapacity) * 3];
+    }
+
+    @Override
+    public void accept(int y, int x0, int x1) {
+        if (size * 3 == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[size * 3] = y;
+        spans[size * 3 + 1] = x0;
+        spans[size * 3 + 2] = x1;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getY(int index) {
+        return spans[index * 3];
+    }
+
+    public int getX0(int index) {
+        return spans[index * 3 + 1];
+    }
+
+    public int getX1(int index) {
+        return spans[index * 3 + 2];
+    }
+
+    // Сумма длин всех отрезков
+    public long pixelCount() {
+        long pixels = 0;
+        for (int i = 0; i < size * 3; i += 3) {
+            pixels += spans[i + 2] - spans[i + 1] + 1;
+        }
+        return pixels;
+    }
+
+    // Передаёт все отрезки в другой приёмник в порядке добавления
+    public void forEach(SpanSink sink) {
+        for (int i = 0; i < size * 3; i += 3) {
+            sink.accept(spans[i], spans[i + 1], spans[i + 2]);
+        }
+    }
+
+    // Передаёт каждую клетку всех отрезков, слева направо
+    public void forEachPixel(PixelSink sink) {
+        for (int i = 0; i < size * 3; i += 3) {
+            for (int x = spans[i + 1]; x <= spans[i + 2]; x++) {
+                sink.accept(x, spans[i]);
+            }
+        }
+    }
+}
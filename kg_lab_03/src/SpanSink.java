@@ -0,0 +1,7 @@
+// Приёмник горизонтальных отрезков заливки: строка y, клетки от x0 до x1 включительно
+// (x0 <= x1). Заполненные фигуры выдаются отрезками, а не точками, чтобы приёмник мог
+// закрасить строку одной операцией
+@FunctionalInterface
+public interface SpanSink {
+    void accept(int y, int x0, int x1);
+}